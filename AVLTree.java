@@ -0,0 +1,253 @@
+/**
+ * A self-balancing version of BinarySearchTree, with the same insert, fetch, delete and update methods.
+ * Every node records the height of its subtree, and insert and delete rotate on the way back up whenever the heights
+ * of a node's two subtrees differ by more than one. The height of the tree therefore stays below 1.45 log2(n)
+ * whatever order the values arrive in, so sorted input no longer degenerates into a linked list.
+ * Like BinarySearchTree, a value equal to one already stored is inserted on its right.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class AVLTree {
+	// The root node of the tree
+	private Node root;
+	// The number of nodes in the tree
+	private int size;
+	
+	/*
+	 * A node of the tree. Stores the height of its subtree, a leaf has height 1.
+	 */
+	private static class Node {
+		private int data;
+		private Node left;
+		private Node right;
+		private int height;
+		
+		private Node(int data) {
+			this.data = data;
+			this.height = 1;
+		}
+	}
+	
+	/**
+	 * Constructs a new empty AVL tree.
+	 */
+	public AVLTree() {
+		root = null;
+		size = 0;
+	}
+	/**
+	 * A method which inserts a new node into the tree, rebalancing along the path back to the root.
+	 * @param value The data value for the node we are going to insert
+	 */
+	public void insert(int value) {
+		root = insert(root, value);
+		size++;
+	}
+	/**
+	 * Inserts a value into a subtree.
+	 * @param node The root of the subtree.
+	 * @param value The value to insert.
+	 * @return The new root of the subtree after rebalancing.
+	 */
+	private Node insert(Node node, int value) {
+		// We found where the node goes.
+		if (node == null) {
+			return new Node(value);
+		}
+		// Smaller values go on the left, equal and larger values on the right.
+		if (value < node.data) {
+			node.left = insert(node.left, value);
+		}
+		else {
+			node.right = insert(node.right, value);
+		}
+		return rebalance(node);
+	}
+	/**
+	 * A method which fetches a node given by a parameter from the tree.
+	 * @param target The data value of the node we are trying to fetch
+	 * @return The value if it is in the tree, null otherwise.
+	 */
+	public Integer fetch(int target) {
+		Node node = root;
+		// Walk down the tree until we find the value or fall off the bottom.
+		while (node != null) {
+			if (target == node.data) {
+				return node.data;
+			}
+			node = target < node.data ? node.left : node.right;
+		}
+		return null;
+	}
+	/**
+	 * A method which deletes a node given by a parameter from the tree, rebalancing along the path back to the root.
+	 * @param target The data value of the node we are trying to delete
+	 * @return true if we deleted the node, false otherwise.
+	 */
+	public boolean delete(int target) {
+		// If the value isn't in the tree there is nothing to delete.
+		if (fetch(target) == null) {
+			return false;
+		}
+		root = delete(root, target);
+		size--;
+		return true;
+	}
+	/**
+	 * Deletes a value from a subtree that contains it.
+	 * @param node The root of the subtree.
+	 * @param target The value to delete.
+	 * @return The new root of the subtree after rebalancing.
+	 */
+	private Node delete(Node node, int target) {
+		if (target < node.data) {
+			node.left = delete(node.left, target);
+		}
+		else if (target > node.data) {
+			node.right = delete(node.right, target);
+		}
+		// We found the node to delete.
+		else {
+			// Case 1 and 2: no children or one child, the child (or null) takes its place.
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			// Case 3: two children. Overwrite the data with the largest value in the left subtree, then delete that value.
+			Node largest = node.left;
+			while (largest.right != null) {
+				largest = largest.right;
+			}
+			node.data = largest.data;
+			node.left = deleteLargest(node.left);
+		}
+		return rebalance(node);
+	}
+	/**
+	 * Deletes the largest node of a subtree.
+	 * @param node The root of the subtree.
+	 * @return The new root of the subtree after rebalancing.
+	 */
+	private Node deleteLargest(Node node) {
+		if (node.right == null) {
+			return node.left;
+		}
+		node.right = deleteLargest(node.right);
+		return rebalance(node);
+	}
+	/**
+	 * A method to update a node. This deletes the old node and inserts a new node.
+	 * @param target The value of the node we wish to update.
+	 * @param newValue The value we wish to replace the old node with.
+	 * @return True if we have both deleted the old node and inserted the new one, false otherwise.
+	 */
+	public boolean update(int target, int newValue) {
+		if (!delete(target)) {
+			return false;
+		}
+		insert(newValue);
+		return true;
+	}
+	/**
+	 * Restores the height of a node and rotates it if its subtrees differ in height by more than one.
+	 * @param node The node to rebalance.
+	 * @return The node that takes its place.
+	 */
+	private Node rebalance(Node node) {
+		updateHeight(node);
+		int balance = height(node.left) - height(node.right);
+		// Left heavy.
+		if (balance > 1) {
+			// Left-right case: rotate the left child first.
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		// Right heavy.
+		if (balance < -1) {
+			// Right-left case: rotate the right child first.
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+	/**
+	 * Rotates a node down to the right, its left child takes its place.
+	 * @param node The node to rotate.
+	 * @return The new root of the subtree.
+	 */
+	private static Node rotateRight(Node node) {
+		Node pivot = node.left;
+		node.left = pivot.right;
+		pivot.right = node;
+		updateHeight(node);
+		updateHeight(pivot);
+		return pivot;
+	}
+	/**
+	 * Rotates a node down to the left, its right child takes its place.
+	 * @param node The node to rotate.
+	 * @return The new root of the subtree.
+	 */
+	private static Node rotateLeft(Node node) {
+		Node pivot = node.right;
+		node.right = pivot.left;
+		pivot.left = node;
+		updateHeight(node);
+		updateHeight(pivot);
+		return pivot;
+	}
+	/**
+	 * The height of a subtree.
+	 * @param node The root of the subtree.
+	 * @return The height, 0 for an empty subtree.
+	 */
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+	/**
+	 * Recomputes the height of a node from its children.
+	 * @param node The node.
+	 */
+	private static void updateHeight(Node node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+	}
+	/**
+	 * The height of the tree.
+	 * @return The number of nodes on the longest path from the root to a leaf, 0 if the tree is empty.
+	 */
+	public int height() {
+		return height(root);
+	}
+	/**
+	 * The number of nodes in the tree.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * A method to perform a LEFT-ROOT-RIGHT traversal, outputting along the way.
+	 * Recursion is safe here since the depth is logarithmic.
+	 */
+	public void traverseLNR() {
+		traverseLNR(root);
+	}
+	/**
+	 * Performs a LEFT-ROOT-RIGHT traversal of a subtree.
+	 * @param node The root of the subtree.
+	 */
+	private void traverseLNR(Node node) {
+		if (node == null) {
+			return;
+		}
+		traverseLNR(node.left);
+		System.out.println(node.data);
+		traverseLNR(node.right);
+	}
+}
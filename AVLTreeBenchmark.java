@@ -0,0 +1,170 @@
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Measures AVLTree against BinarySearchTree on sorted, reverse-sorted and random inputs: the height after inserting
+ * every value, the height after deleting half of them, and the time per insert, fetch and delete. The AVL height should
+ * stay below 1.44 log2(n) on every input. The unbalanced tree becomes a list on sorted input, where each operation walks
+ * the whole height, so it is measured with fewer values on the sorted inputs to keep the run short.
+ * Run with: java AVLTreeBenchmark [values] [valuesForUnbalancedSorted]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class AVLTreeBenchmark {
+
+	/*
+	 * The operations a measurement needs, so both trees can be driven by the same loop.
+	 */
+	private interface Tree {
+		void insert(int value);
+		Integer fetch(int target);
+		boolean delete(int target);
+		int height();
+	}
+
+	/**
+	 * Outputs one line per tree and input order.
+	 * @param args = The number of values, and the number of values for BinarySearchTree on sorted inputs.
+	 */
+	public static void main(String[] args) {
+		int values = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int unbalanced = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		String[] orders = { "sorted", "reverse", "random" };
+		for (int run = 0; run < 2; run++) {
+			System.out.println(run == 0 ? "warm-up:" : "measured:");
+			for (int o = 0; o < orders.length; o++) {
+				measure("AVLTree", avlTree(), orders[o], input(orders[o], values));
+				int n = orders[o].equals("random") ? values : unbalanced;
+				measure("BinarySearchTree", binarySearchTree(), orders[o], input(orders[o], n));
+			}
+		}
+	}
+	/**
+	 * Builds the values 0 to n - 1 in an order.
+	 * @param order = "sorted", "reverse" or "random".
+	 * @param n = The number of values.
+	 * @return The values.
+	 */
+	private static int[] input(String order, int n) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = order.equals("reverse") ? n - 1 - i : i;
+		}
+		if (order.equals("random")) {
+			Random random = new Random(42);
+			for (int i = n - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = values[i];
+				values[i] = values[j];
+				values[j] = swap;
+			}
+		}
+		return values;
+	}
+	/**
+	 * An empty AVLTree.
+	 * @return The tree.
+	 */
+	private static Tree avlTree() {
+		final AVLTree tree = new AVLTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+			public int height() {
+				return tree.height();
+			}
+		};
+	}
+	/**
+	 * An empty BinarySearchTree. Its height is measured level by level with a queue, since a recursive walk would
+	 * overflow the stack on a degenerate tree.
+	 * @return The tree.
+	 */
+	private static Tree binarySearchTree() {
+		final BinarySearchTree tree = new BinarySearchTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+			public int height() {
+				int height = 0;
+				ArrayDeque<TreeNode> level = new ArrayDeque<TreeNode>();
+				if (tree.root != null) {
+					level.add(tree.root);
+				}
+				while (!level.isEmpty()) {
+					height++;
+					for (int i = level.size(); i > 0; i--) {
+						TreeNode node = level.poll();
+						if (node.left != null) {
+							level.add(node.left);
+						}
+						if (node.right != null) {
+							level.add(node.right);
+						}
+					}
+				}
+				return height;
+			}
+		};
+	}
+	/**
+	 * Inserts the values, fetches each of them, deletes every other one, and outputs the heights and times.
+	 * @param name = The name of the tree.
+	 * @param tree = The tree, empty.
+	 * @param order = The name of the input order.
+	 * @param values = The values, in the order to insert them.
+	 */
+	private static void measure(String name, Tree tree, String order, int[] values) {
+		int n = values.length;
+		int wrong = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(values[i]);
+		}
+		long insert = System.nanoTime() - start;
+		int height = tree.height();
+		start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (tree.fetch(values[i]) == null) {
+				wrong++;
+			}
+		}
+		long fetch = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i += 2) {
+			if (!tree.delete(values[i])) {
+				wrong++;
+			}
+		}
+		long delete = System.nanoTime() - start;
+		int deletes = (n + 1) / 2;
+		System.out.println("  " + name + " " + order + " n=" + n + ": height=" + height
+				+ " (log2 n=" + String.format("%.1f", Math.log(n) / Math.log(2)) + ")"
+				+ " heightAfterDeletes=" + tree.height()
+				+ " insert=" + perOp(insert, n) + " fetch=" + perOp(fetch, n) + " delete=" + perOp(delete, deletes) + " ns/op"
+				+ (wrong != 0 ? " WRONG RESULTS: " + wrong : ""));
+	}
+	/**
+	 * Formats the nanoseconds per operation.
+	 * @param nanos = The nanoseconds taken by all operations.
+	 * @param operations = The number of operations.
+	 * @return The nanoseconds per operation.
+	 */
+	private static String perOp(long nanos, int operations) {
+		return String.format("%.1f", ((double) nanos) / operations);
+	}
+}
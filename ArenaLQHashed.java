@@ -0,0 +1,345 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A compact version of LQHashed for short listings. Instead of a reference to a String, each location holds an int offset
+ * into one contiguous arena of UTF-8 encoded keys, so there is no object header, array header or padding per key.
+ * Lookups compare the query against the arena bytes directly and never create a String.
+ * Uses the same Linear Quotient collision algorithm as LQHashed.
+ * 
+ * Each key in the arena is a one or two byte length followed by its bytes. The bytes of deleted keys stay in the arena
+ * until they outweigh the live keys, then the live keys are copied into a new arena and the offsets are rewritten.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class ArenaLQHashed {
+	// The values that mark a location empty or deleted. Any other value is the offset of the key plus one.
+	private static final int EMPTY = 0;
+	private static final int DELETED = -1;
+	
+	// Keys whose length fits in one byte use a one byte length, others set the high bit and use two bytes.
+	private static final int SHORT_KEY = 0x80;
+	
+	// The largest arena that can be allocated, a little under 2 GB since offsets are ints.
+	private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+	
+	// The number of locations allocated to the primary storage arrays.
+	private int N;
+	
+	// A default 4k + 3 prime.
+	private int defaultQuotient = 9967;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private double loadingFactor = 0.75;
+	
+	// Number of nodes currently stored in the structure.
+	private int size;
+	
+	// The offset plus one of the key stored at each location, or EMPTY or DELETED.
+	private int[] slots;
+	
+	// The pseudo-key of the key stored at each location. Checked before comparing bytes.
+	private int[] pseudoKeys;
+	
+	// The encoded keys, and the offset where the next key will be written.
+	private ByteBuffer arena;
+	private int arenaEnd;
+	
+	// The arena bytes, lengths included, of keys that have been deleted since the arena was last compacted.
+	private int deadBytes;
+	
+	// The number of times the arena has been compacted.
+	private int compactions;
+	
+	// The pre-processing algorithm that converts keys into pseudo-keys.
+	private HashStrategy hashStrategy;
+	
+	/**
+	 * Constructs an ArenaLQHashed that can hold length nodes, converting keys with fold shifting.
+	 * @param length= The number of nodes to be stored in the data structure.
+	 */
+	public ArenaLQHashed(int length) {
+		this(length, new FoldShiftHash());
+	}
+	/**
+	 * Constructs an ArenaLQHashed that can hold length nodes.
+	 * @param length= The number of nodes to be stored in the data structure.
+	 * @param hashStrategy= The pre-processing algorithm that converts keys into pseudo-keys.
+	 */
+	public ArenaLQHashed(int length, HashStrategy hashStrategy) {
+		int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
+		this.hashStrategy = hashStrategy;
+		N = LQHashed.fourKPlus3(length, pct);
+		slots = new int[N];
+		pseudoKeys = new int[N];
+		// Start with room for 16 bytes per node, the arena doubles when it runs out.
+		arena = ByteBuffer.allocate((int) Math.min((long) Math.max(length, 1) * 16, MAX_ARENA));
+		arenaEnd = 0;
+		size = 0;
+	}
+	/**
+	 * Attempts to insert newListing into the structure.
+	 * @param newListing = The new listing to insert into the structure.
+	 * @return True if the listing was inserted, false otherwise.
+	 */
+	public boolean insert(String newListing) {
+		// If the structure is full to loading factor.
+		if ((((double) size) / N) >= loadingFactor) {
+			return false;
+		}
+		int bytes = Utf8Keys.encodedLength(newListing);
+		if (bytes > 0x7FFF) {
+			throw new IllegalArgumentException("Listing is longer than 32767 bytes");
+		}
+		int pk = hashStrategy.hash(newListing);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			if (slots[ip] == EMPTY || slots[ip] == DELETED) {
+				slots[ip] = append(newListing, bytes) + 1;
+				pseudoKeys[ip] = pk;
+				size++;
+				return true;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return false;
+	}
+	/**
+	 * Retrieves the node with key-field given by targetKey, comparing it against the arena without creating a String.
+	 * @param targetKey = The key-field of the node we wish to retrieve.
+	 * @return The node whose key-field matches the targetKey (which equals targetKey), null if we couldn't find it.
+	 */
+	public String fetch(String targetKey) {
+		if (find(targetKey) == -1) {
+			return null;
+		}
+		return targetKey;
+	}
+	/**
+	 * Deletes the target item and inserts a new item to replace it.
+	 * @param targetKey = The listing we wish to update
+	 * @param newListing = The listing to replace the targeted listing with
+	 * @return True if we deleted the old listing and inserted the new one, false otherwise.
+	 */
+	public boolean update(String targetKey, String newListing) {
+		if (delete(targetKey) == false) {
+			return false;
+		}
+		return insert(newListing);
+	}
+	/**
+	 * Deletes the node given by the targetKey from the structure.
+	 * @param targetKey = The key of the node we wish to delete
+	 * @return True if we deleted the node, false otherwise.
+	 */
+	public boolean delete(String targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		deadBytes += recordBytes(slots[ip] - 1);
+		slots[ip] = DELETED;
+		size--;
+		// Once the dead keys outweigh the live ones, and the scan of the locations is paid for by the bytes it frees,
+		// copy the live keys into a smaller arena.
+		if (deadBytes > Math.max(arenaEnd - deadBytes, N)) {
+			compact();
+		}
+		return true;
+	}
+	/**
+	 * The number of arena bytes a key takes up, its length included.
+	 * @param at = The offset of the key.
+	 * @return The bytes of the key and its length.
+	 */
+	private int recordBytes(int at) {
+		int length = arena.get(at) & 0xFF;
+		if (length < SHORT_KEY) {
+			return 1 + length;
+		}
+		return 2 + (((length & 0x7F) << 8) | (arena.get(at + 1) & 0xFF));
+	}
+	/**
+	 * Copies the keys of every stored node into a new arena, one after another, and points their locations at the new
+	 * offsets. The new arena has room for the live keys twice over.
+	 */
+	private void compact() {
+		int live = arenaEnd - deadBytes;
+		ByteBuffer compacted = ByteBuffer.allocate((int) Math.min(Math.max(2L * live, 16), MAX_ARENA));
+		int end = 0;
+		int at, bytes;
+		for (int i = 0; i < N; i++) {
+			if (slots[i] != EMPTY && slots[i] != DELETED) {
+				at = slots[i] - 1;
+				bytes = recordBytes(at);
+				System.arraycopy(arena.array(), at, compacted.array(), end, bytes);
+				slots[i] = end + 1;
+				end += bytes;
+			}
+		}
+		arena = compacted;
+		arenaEnd = end;
+		deadBytes = 0;
+		compactions++;
+	}
+	/**
+	 * Probes for the location of targetKey.
+	 * @param targetKey = The key we are looking for.
+	 * @return The location of the key, -1 if it is not stored.
+	 */
+	private int find(String targetKey) {
+		int pk = hashStrategy.hash(targetKey);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		int at, length;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			// If the node is not in the structure
+			if (slots[ip] == EMPTY) {
+				break;
+			}
+			// Only compare the bytes when the pseudo-keys match.
+			if (slots[ip] != DELETED && pseudoKeys[ip] == pk) {
+				at = slots[ip] - 1;
+				length = arena.get(at) & 0xFF;
+				if (length < SHORT_KEY) {
+					at += 1;
+				}
+				else {
+					length = ((length & 0x7F) << 8) | (arena.get(at + 1) & 0xFF);
+					at += 2;
+				}
+				if (Utf8Keys.equals(arena, at, length, targetKey)) {
+					return ip;
+				}
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Writes a key to the end of the arena. If the arena is full, it is compacted when that frees enough room and
+	 * doubled otherwise.
+	 * @param key = The key to write.
+	 * @param bytes = The encoded length of the key.
+	 * @return The offset the key was written at.
+	 * @throws IllegalStateException if the live keys would need an arena over MAX_ARENA bytes.
+	 */
+	private int append(String key, int bytes) {
+		long needed = (long) arenaEnd + 2 + bytes;
+		if (needed > arena.capacity()) {
+			// Compacting leaves room for the live keys twice over, which may be all the room we need.
+			if (deadBytes > 0) {
+				compact();
+				needed = (long) arenaEnd + 2 + bytes;
+			}
+			if (needed > MAX_ARENA) {
+				throw new IllegalStateException("Key arena would be " + needed + " bytes, over the " + MAX_ARENA + " byte limit");
+			}
+			if (needed > arena.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate((int) Math.min(Math.max((long) arena.capacity() * 2, needed), MAX_ARENA));
+				System.arraycopy(arena.array(), 0, larger.array(), 0, arenaEnd);
+				arena = larger;
+			}
+		}
+		int start = arenaEnd;
+		// Write the length, then the key.
+		if (bytes < SHORT_KEY) {
+			arena.put(arenaEnd++, (byte) bytes);
+		}
+		else {
+			arena.put(arenaEnd++, (byte) (SHORT_KEY | (bytes >> 8)));
+			arena.put(arenaEnd++, (byte) bytes);
+		}
+		arenaEnd += Utf8Keys.write(key, arena, arenaEnd);
+		return start;
+	}
+	/**
+	 * The number of nodes currently stored in the structure.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The number of arena bytes used by keys, including the keys of deleted nodes that have not been compacted away.
+	 * @return The number of bytes.
+	 */
+	public int getArenaBytes() {
+		return arenaEnd;
+	}
+	/**
+	 * The number of arena bytes held by the keys of deleted nodes, waiting for the next compaction.
+	 * @return The number of bytes.
+	 */
+	public int getDeadBytes() {
+		return deadBytes;
+	}
+	/**
+	 * The number of times the arena has been compacted.
+	 * @return The number of compactions.
+	 */
+	public int getCompactions() {
+		return compactions;
+	}
+	/**
+	 * The approximate heap used by the structure: the two int arrays and the allocated arena.
+	 * @return The number of bytes.
+	 */
+	public long getFootprintBytes() {
+		return 2L * (16 + 4L * N) + 16 + arena.capacity();
+	}
+	/**
+	 * Estimates the heap used by LQHashed and by ArenaLQHashed for the same keys, assuming a 64 bit JVM with compressed
+	 * references and compact (Latin-1) strings. LQHashed pays a String object (24 bytes) and a byte array (16 byte header,
+	 * padded to 8 bytes) per key, plus a reference and a cached pseudo-key per location. ArenaLQHashed pays an offset and a
+	 * pseudo-key per location, plus the length and bytes of each key.
+	 * @param entries = The number of keys, for example 10,000,000.
+	 * @param averageKeyLength = The average key length in bytes.
+	 * @return One line per structure with the total and per-key estimate.
+	 */
+	public static String footprintReport(int entries, int averageKeyLength) {
+		int pct = (int)((1.0 / 0.75 - 1) * 100.0);
+		long n = LQHashed.fourKPlus3(entries, pct);
+		long stringBytes = 24 + ((16 + averageKeyLength + 7) / 8) * 8;
+		long lqHashed = n * (4 + 4) + (long) entries * stringBytes;
+		long lengthBytes = averageKeyLength < SHORT_KEY ? 1 : 2;
+		long arenaHashed = n * (4 + 4) + (long) entries * (lengthBytes + averageKeyLength);
+		return "LQHashed:      " + lqHashed + " bytes (" + (lqHashed / Math.max(entries, 1)) + " per key)\n"
+				+ "ArenaLQHashed: " + arenaHashed + " bytes (" + (arenaHashed / Math.max(entries, 1)) + " per key)";
+	}
+	/**
+	 * Outputs the nodes in the structure to the console. This decodes each key into a String.
+	 */
+	public void output() {
+		int at, length;
+		for (int i = 0; i < N; i++) {
+			if (slots[i] != EMPTY && slots[i] != DELETED) {
+				at = slots[i] - 1;
+				length = arena.get(at) & 0xFF;
+				if (length < SHORT_KEY) {
+					at += 1;
+				}
+				else {
+					length = ((length & 0x7F) << 8) | (arena.get(at + 1) & 0xFF);
+					at += 2;
+				}
+				System.out.println(Utf8Keys.read(arena, at, length));
+			}
+		}
+	}
+}
@@ -0,0 +1,500 @@
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * An int-keyed B+-tree with the same insert, fetch, delete and update methods as BinarySearchTree, for key sets too
+ * large for one node per key. Each node holds up to MAX_KEYS sorted keys in an int array of 256 bytes, four cache
+ * lines, so a lookup touches about log64(n) nodes instead of log2(n). Internal nodes only route, every key lives in a
+ * leaf, and the leaves are linked in order so a range scan walks them without going back up the tree.
+ * Like BinarySearchTree the tree may hold a value more than once. A leaf stores each distinct value once together
+ * with the number of times it was inserted.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class BPlusTree {
+	// The most keys a node holds between operations. The arrays have one spare slot for an insert before a split.
+	static final int MAX_KEYS = 63;
+	// The fewest keys a node other than the root holds between operations.
+	static final int MIN_KEYS = MAX_KEYS / 2;
+	
+	// The root node, a leaf while the tree fits in one node.
+	private Node root;
+	// The leftmost leaf, where ascending scans start.
+	private Leaf first;
+	// The number of values in the tree, counting repeats.
+	private int size;
+	// The number of levels, 1 while the root is a leaf.
+	private int height;
+	// Set by insert when a child splits: the smallest key of the new right sibling.
+	private int splitKey;
+	
+	/*
+	 * A node of the tree. keys[0..n) is sorted.
+	 */
+	private abstract static class Node {
+		final int[] keys = new int[MAX_KEYS + 1];
+		int n;
+	}
+	
+	/*
+	 * A leaf. counts[i] is the number of times keys[i] was inserted, next links the leaves in key order.
+	 */
+	private static final class Leaf extends Node {
+		final int[] counts = new int[MAX_KEYS + 1];
+		Leaf next;
+	}
+	
+	/*
+	 * An internal node. children[i] holds the keys k with keys[i - 1] <= k < keys[i].
+	 */
+	private static final class Internal extends Node {
+		final Node[] children = new Node[MAX_KEYS + 2];
+	}
+	
+	/**
+	 * Constructs a new empty B+-tree.
+	 */
+	public BPlusTree() {
+		first = new Leaf();
+		root = first;
+		size = 0;
+		height = 1;
+	}
+	/**
+	 * The first index in keys[0..n) whose key is at least key, n if there is none. The loop always runs log2(n) times
+	 * and only the base moves, so the comparison compiles to a conditional move rather than a branch.
+	 * @param keys The sorted keys.
+	 * @param n The number of keys in use.
+	 * @param key The key to search for.
+	 * @return The index of the first key >= key.
+	 */
+	static int lowerBound(int[] keys, int n, int key) {
+		if (n == 0) {
+			return 0;
+		}
+		int base = 0;
+		int len = n;
+		while (len > 1) {
+			int half = len >>> 1;
+			base = keys[base + half - 1] < key ? base + half : base;
+			len -= half;
+		}
+		return keys[base] < key ? base + 1 : base;
+	}
+	/**
+	 * The first index in keys[0..n) whose key is more than key, n if there is none.
+	 * @param keys The sorted keys.
+	 * @param n The number of keys in use.
+	 * @param key The key to search for.
+	 * @return The index of the first key > key.
+	 */
+	static int upperBound(int[] keys, int n, int key) {
+		if (n == 0) {
+			return 0;
+		}
+		int base = 0;
+		int len = n;
+		while (len > 1) {
+			int half = len >>> 1;
+			base = keys[base + half - 1] <= key ? base + half : base;
+			len -= half;
+		}
+		return keys[base] <= key ? base + 1 : base;
+	}
+	/**
+	 * Finds the leaf that holds, or would hold, a key.
+	 * @param key The key to look for.
+	 * @return The leaf.
+	 */
+	private Leaf findLeaf(int key) {
+		Node node = root;
+		while (node instanceof Internal) {
+			node = ((Internal) node).children[upperBound(node.keys, node.n, key)];
+		}
+		return (Leaf) node;
+	}
+	/**
+	 * A method which inserts a value into the tree.
+	 * @param value The value we are going to insert
+	 */
+	public void insert(int value) {
+		Node sibling = insert(root, value);
+		// The root split, so the tree grows a level.
+		if (sibling != null) {
+			Internal newRoot = new Internal();
+			newRoot.keys[0] = splitKey;
+			newRoot.children[0] = root;
+			newRoot.children[1] = sibling;
+			newRoot.n = 1;
+			root = newRoot;
+			height++;
+		}
+		size++;
+	}
+	/**
+	 * Inserts a value into a subtree.
+	 * @param node The root of the subtree.
+	 * @param value The value to insert.
+	 * @return The new right sibling if the node split, with its smallest key in splitKey, null otherwise.
+	 */
+	private Node insert(Node node, int value) {
+		if (node instanceof Leaf) {
+			Leaf leaf = (Leaf) node;
+			int i = lowerBound(leaf.keys, leaf.n, value);
+			// The value is already here, count it again.
+			if (i < leaf.n && leaf.keys[i] == value) {
+				leaf.counts[i]++;
+				return null;
+			}
+			// Shift the larger keys up one slot and put the value in the gap.
+			System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+			System.arraycopy(leaf.counts, i, leaf.counts, i + 1, leaf.n - i);
+			leaf.keys[i] = value;
+			leaf.counts[i] = 1;
+			leaf.n++;
+			return leaf.n > MAX_KEYS ? splitLeaf(leaf) : null;
+		}
+		Internal parent = (Internal) node;
+		int i = upperBound(parent.keys, parent.n, value);
+		Node sibling = insert(parent.children[i], value);
+		if (sibling == null) {
+			return null;
+		}
+		// The child split, add its new sibling to the right of it.
+		System.arraycopy(parent.keys, i, parent.keys, i + 1, parent.n - i);
+		System.arraycopy(parent.children, i + 1, parent.children, i + 2, parent.n - i);
+		parent.keys[i] = splitKey;
+		parent.children[i + 1] = sibling;
+		parent.n++;
+		return parent.n > MAX_KEYS ? splitInternal(parent) : null;
+	}
+	/**
+	 * Moves the upper half of an overfull leaf into a new leaf linked after it.
+	 * @param leaf The leaf to split.
+	 * @return The new leaf, with its smallest key in splitKey.
+	 */
+	private Leaf splitLeaf(Leaf leaf) {
+		Leaf right = new Leaf();
+		int keep = leaf.n / 2;
+		right.n = leaf.n - keep;
+		System.arraycopy(leaf.keys, keep, right.keys, 0, right.n);
+		System.arraycopy(leaf.counts, keep, right.counts, 0, right.n);
+		leaf.n = keep;
+		// Link the new leaf in after the old one.
+		right.next = leaf.next;
+		leaf.next = right;
+		splitKey = right.keys[0];
+		return right;
+	}
+	/**
+	 * Moves the upper half of an overfull internal node into a new node. The middle key moves up to the parent.
+	 * @param node The node to split.
+	 * @return The new node, with the key that separates it from node in splitKey.
+	 */
+	private Internal splitInternal(Internal node) {
+		Internal right = new Internal();
+		int mid = node.n / 2;
+		splitKey = node.keys[mid];
+		right.n = node.n - mid - 1;
+		System.arraycopy(node.keys, mid + 1, right.keys, 0, right.n);
+		System.arraycopy(node.children, mid + 1, right.children, 0, right.n + 1);
+		// Clear the moved references so the old node doesn't keep them alive.
+		for (int i = mid + 1; i <= node.n; i++) {
+			node.children[i] = null;
+		}
+		node.n = mid;
+		return right;
+	}
+	/**
+	 * A method which fetches a value from the tree.
+	 * @param target The value we are trying to fetch
+	 * @return The value if it is in the tree, null otherwise.
+	 */
+	public Integer fetch(int target) {
+		Leaf leaf = findLeaf(target);
+		int i = lowerBound(leaf.keys, leaf.n, target);
+		if (i < leaf.n && leaf.keys[i] == target) {
+			return leaf.keys[i];
+		}
+		return null;
+	}
+	/**
+	 * A method which deletes one occurrence of a value from the tree. Nodes left with fewer than MIN_KEYS keys borrow a
+	 * key from a sibling, or merge with it when the sibling has none to spare.
+	 * @param target The value we are trying to delete
+	 * @return true if we deleted the value, false otherwise.
+	 */
+	public boolean delete(int target) {
+		if (!delete(root, target)) {
+			return false;
+		}
+		// The root ran out of keys, its only child becomes the root.
+		if (root instanceof Internal && root.n == 0) {
+			root = ((Internal) root).children[0];
+			height--;
+		}
+		size--;
+		return true;
+	}
+	/**
+	 * Deletes one occurrence of a value from a subtree, fixing any child that underflows on the way back up.
+	 * @param node The root of the subtree.
+	 * @param target The value to delete.
+	 * @return true if the value was found and deleted.
+	 */
+	private boolean delete(Node node, int target) {
+		if (node instanceof Leaf) {
+			Leaf leaf = (Leaf) node;
+			int i = lowerBound(leaf.keys, leaf.n, target);
+			if (i == leaf.n || leaf.keys[i] != target) {
+				return false;
+			}
+			// Other copies remain, just count one fewer.
+			if (--leaf.counts[i] > 0) {
+				return true;
+			}
+			System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.n - i - 1);
+			System.arraycopy(leaf.counts, i + 1, leaf.counts, i, leaf.n - i - 1);
+			leaf.n--;
+			return true;
+		}
+		Internal parent = (Internal) node;
+		int i = upperBound(parent.keys, parent.n, target);
+		if (!delete(parent.children[i], target)) {
+			return false;
+		}
+		if (parent.children[i].n < MIN_KEYS) {
+			fixUnderflow(parent, i);
+		}
+		return true;
+	}
+	/**
+	 * Brings a child that fell below MIN_KEYS back up, by borrowing a key from a sibling that has one to spare or by
+	 * merging with a sibling.
+	 * @param parent The parent of the child.
+	 * @param i The index of the child in the parent.
+	 */
+	private void fixUnderflow(Internal parent, int i) {
+		Node left = i > 0 ? parent.children[i - 1] : null;
+		Node right = i < parent.n ? parent.children[i + 1] : null;
+		if (left != null && left.n > MIN_KEYS) {
+			borrowFromLeft(parent, i);
+		}
+		else if (right != null && right.n > MIN_KEYS) {
+			borrowFromRight(parent, i);
+		}
+		else if (left != null) {
+			merge(parent, i - 1);
+		}
+		else {
+			merge(parent, i);
+		}
+	}
+	/**
+	 * Moves the largest key of the left sibling into a child.
+	 * @param parent The parent of the child.
+	 * @param i The index of the child in the parent, at least 1.
+	 */
+	private void borrowFromLeft(Internal parent, int i) {
+		Node child = parent.children[i];
+		Node left = parent.children[i - 1];
+		System.arraycopy(child.keys, 0, child.keys, 1, child.n);
+		if (child instanceof Leaf) {
+			Leaf c = (Leaf) child;
+			Leaf l = (Leaf) left;
+			System.arraycopy(c.counts, 0, c.counts, 1, c.n);
+			c.keys[0] = l.keys[l.n - 1];
+			c.counts[0] = l.counts[l.n - 1];
+			// The child's smallest key changed.
+			parent.keys[i - 1] = c.keys[0];
+		}
+		else {
+			Internal c = (Internal) child;
+			Internal l = (Internal) left;
+			System.arraycopy(c.children, 0, c.children, 1, c.n + 1);
+			// The separator comes down and the left sibling's largest key goes up in its place.
+			c.keys[0] = parent.keys[i - 1];
+			c.children[0] = l.children[l.n];
+			l.children[l.n] = null;
+			parent.keys[i - 1] = l.keys[l.n - 1];
+		}
+		child.n++;
+		left.n--;
+	}
+	/**
+	 * Moves the smallest key of the right sibling into a child.
+	 * @param parent The parent of the child.
+	 * @param i The index of the child in the parent, less than parent.n.
+	 */
+	private void borrowFromRight(Internal parent, int i) {
+		Node child = parent.children[i];
+		Node right = parent.children[i + 1];
+		if (child instanceof Leaf) {
+			Leaf c = (Leaf) child;
+			Leaf r = (Leaf) right;
+			c.keys[c.n] = r.keys[0];
+			c.counts[c.n] = r.counts[0];
+			System.arraycopy(r.keys, 1, r.keys, 0, r.n - 1);
+			System.arraycopy(r.counts, 1, r.counts, 0, r.n - 1);
+			// The right sibling's smallest key changed.
+			parent.keys[i] = r.keys[0];
+		}
+		else {
+			Internal c = (Internal) child;
+			Internal r = (Internal) right;
+			// The separator comes down and the right sibling's smallest key goes up in its place.
+			c.keys[c.n] = parent.keys[i];
+			c.children[c.n + 1] = r.children[0];
+			parent.keys[i] = r.keys[0];
+			System.arraycopy(r.keys, 1, r.keys, 0, r.n - 1);
+			System.arraycopy(r.children, 1, r.children, 0, r.n);
+			r.children[r.n] = null;
+		}
+		child.n++;
+		right.n--;
+	}
+	/**
+	 * Merges a child with its right sibling and removes the sibling from the parent.
+	 * @param parent The parent of the two nodes.
+	 * @param i The index of the left one of the two in the parent.
+	 */
+	private void merge(Internal parent, int i) {
+		Node left = parent.children[i];
+		Node right = parent.children[i + 1];
+		if (left instanceof Leaf) {
+			Leaf l = (Leaf) left;
+			Leaf r = (Leaf) right;
+			System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+			System.arraycopy(r.counts, 0, l.counts, l.n, r.n);
+			l.n += r.n;
+			// Unlink the right leaf.
+			l.next = r.next;
+		}
+		else {
+			Internal l = (Internal) left;
+			Internal r = (Internal) right;
+			// The separator comes down between the two halves.
+			l.keys[l.n] = parent.keys[i];
+			System.arraycopy(r.keys, 0, l.keys, l.n + 1, r.n);
+			System.arraycopy(r.children, 0, l.children, l.n + 1, r.n + 1);
+			l.n += r.n + 1;
+		}
+		// Remove the separator and the right node from the parent.
+		System.arraycopy(parent.keys, i + 1, parent.keys, i, parent.n - i - 1);
+		System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.n - i - 1);
+		parent.children[parent.n] = null;
+		parent.n--;
+	}
+	/**
+	 * A method to update a value. This deletes the old value and inserts the new one.
+	 * @param target The value we wish to update.
+	 * @param newValue The value we wish to replace it with.
+	 * @return True if we have both deleted the old value and inserted the new one, false otherwise.
+	 */
+	public boolean update(int target, int newValue) {
+		if (!delete(target)) {
+			return false;
+		}
+		insert(newValue);
+		return true;
+	}
+	/**
+	 * The number of values in the tree, counting repeats.
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The height of the tree.
+	 * @return The number of levels, 1 while the whole tree is a single leaf.
+	 */
+	public int height() {
+		return height;
+	}
+	/**
+	 * An iterator over the values between lo and hi in ascending order, repeats included. It descends to the leaf
+	 * holding lo once and then follows the leaf links, so iterating k values costs O(log n + k). The tree must not be
+	 * changed while iterating.
+	 * @param lo The smallest value to visit.
+	 * @param hi The largest value to visit.
+	 * @return An iterator over the values v with lo <= v <= hi.
+	 */
+	public PrimitiveIterator.OfInt rangeIterator(final int lo, final int hi) {
+		final Leaf start = findLeaf(lo);
+		final int startIndex = lowerBound(start.keys, start.n, lo);
+		return new PrimitiveIterator.OfInt() {
+			// The current leaf and slot, and how many more times the slot's key is returned.
+			private Leaf leaf = start;
+			private int index = startIndex;
+			private int remaining = -1;
+			{
+				settle();
+			}
+			/**
+			 * Moves past exhausted leaves so that index is a valid slot, or leaf is null at the end.
+			 */
+			private void settle() {
+				while (leaf != null && index >= leaf.n) {
+					leaf = leaf.next;
+					index = 0;
+				}
+				if (leaf != null) {
+					remaining = leaf.counts[index];
+				}
+			}
+			public boolean hasNext() {
+				return leaf != null && lo <= hi && leaf.keys[index] <= hi;
+			}
+			public int nextInt() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int value = leaf.keys[index];
+				// Move on to the next key once every copy of this one is returned.
+				if (--remaining == 0) {
+					index++;
+					settle();
+				}
+				return value;
+			}
+		};
+	}
+	/**
+	 * Counts the values between lo and hi by walking the leaves.
+	 * @param lo The smallest value to count.
+	 * @param hi The largest value to count.
+	 * @return The number of values v with lo <= v <= hi, repeats included.
+	 */
+	public int countRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		int count = 0;
+		Leaf leaf = findLeaf(lo);
+		int i = lowerBound(leaf.keys, leaf.n, lo);
+		while (leaf != null) {
+			for (; i < leaf.n; i++) {
+				if (leaf.keys[i] > hi) {
+					return count;
+				}
+				count += leaf.counts[i];
+			}
+			leaf = leaf.next;
+			i = 0;
+		}
+		return count;
+	}
+	/**
+	 * A method to output every value in ascending order, by walking the linked leaves from the leftmost one.
+	 */
+	public void traverseLNR() {
+		for (Leaf leaf = first; leaf != null; leaf = leaf.next) {
+			for (int i = 0; i < leaf.n; i++) {
+				for (int c = 0; c < leaf.counts[i]; c++) {
+					System.out.println(leaf.keys[i]);
+				}
+			}
+		}
+	}
+}
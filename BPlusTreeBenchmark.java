@@ -0,0 +1,193 @@
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Measures BPlusTree against BinarySearchTree at 1M, 10M and 100M random keys: the time per insert, per fetch of a stored
+ * key, per key visited by range scans of about a thousand keys each, and per delete of every other key. A size is only
+ * run for a tree when its estimated heap fits in what is free, otherwise a line says it was skipped; 100M keys needs
+ * about 1.6 GB for BPlusTree and 4.8 GB for BinarySearchTree, so raise -Xmx to measure them.
+ * Run with: java BPlusTreeBenchmark [keys ...]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class BPlusTreeBenchmark {
+	// Estimated heap per key: a TreeNode and its Integer, and a B+-tree leaf slot and count about 70% full.
+	private static final long TREE_BYTES_PER_KEY = 48;
+	private static final long BPLUS_BYTES_PER_KEY = 16;
+	// The number of range scans, and the number of keys each one should visit.
+	private static final int SCANS = 1000;
+	private static final int SCAN_KEYS = 1000;
+
+	/*
+	 * The operations a measurement needs, so both trees can be driven by the same loop.
+	 */
+	private interface Tree {
+		void insert(int value);
+		Integer fetch(int target);
+		boolean delete(int target);
+		PrimitiveIterator.OfInt rangeIterator(int lo, int hi);
+	}
+
+	/**
+	 * Outputs one line per tree and size.
+	 * @param args = The numbers of keys, 1M, 10M and 100M by default.
+	 */
+	public static void main(String[] args) {
+		int[] sizes = { 1000000, 10000000, 100000000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+		// Warm up both trees on a small size first.
+		int[] warm = values(100000);
+		measure("BinarySearchTree", binarySearchTree(), warm, false);
+		measure("BPlusTree", bPlusTree(), warm, false);
+		for (int s = 0; s < sizes.length; s++) {
+			int[] values = fits(sizes[s], 4) ? values(sizes[s]) : null;
+			if (values == null) {
+				System.out.println("keys=" + sizes[s] + ": skipped, not enough heap for the keys themselves");
+				continue;
+			}
+			System.out.println("keys=" + sizes[s] + ":");
+			if (fits(sizes[s], TREE_BYTES_PER_KEY)) {
+				measure("BinarySearchTree", binarySearchTree(), values, true);
+			}
+			else {
+				System.out.println("  BinarySearchTree: skipped, about " + ((sizes[s] * TREE_BYTES_PER_KEY) >> 20) + " MB needed");
+			}
+			if (fits(sizes[s], BPLUS_BYTES_PER_KEY)) {
+				measure("BPlusTree", bPlusTree(), values, true);
+			}
+			else {
+				System.out.println("  BPlusTree: skipped, about " + ((sizes[s] * BPLUS_BYTES_PER_KEY) >> 20) + " MB needed");
+			}
+		}
+	}
+	/**
+	 * Whether a number of keys at some bytes each fits in the heap that is free after a garbage collection.
+	 * @param keys = The number of keys.
+	 * @param bytesPerKey = The bytes each key needs.
+	 * @return True if they fit, false otherwise.
+	 */
+	private static boolean fits(int keys, long bytesPerKey) {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return keys * bytesPerKey < free;
+	}
+	/**
+	 * Random values, which keep BinarySearchTree about 2 log2(n) deep.
+	 * @param n = The number of values.
+	 * @return The values.
+	 */
+	private static int[] values(int n) {
+		Random random = new Random(42);
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextInt();
+		}
+		return values;
+	}
+	/**
+	 * An empty BinarySearchTree.
+	 * @return The tree.
+	 */
+	private static Tree binarySearchTree() {
+		final BinarySearchTree tree = new BinarySearchTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+			public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+				return tree.rangeIterator(lo, hi);
+			}
+		};
+	}
+	/**
+	 * An empty BPlusTree.
+	 * @return The tree.
+	 */
+	private static Tree bPlusTree() {
+		final BPlusTree tree = new BPlusTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+			public PrimitiveIterator.OfInt rangeIterator(int lo, int hi) {
+				return tree.rangeIterator(lo, hi);
+			}
+		};
+	}
+	/**
+	 * Inserts the values, fetches each of them, runs the range scans, deletes every other value, and outputs the times.
+	 * @param name = The name of the tree.
+	 * @param tree = The tree, empty.
+	 * @param values = The values, in the order to insert them.
+	 * @param print = Whether to output the line, false while warming up.
+	 */
+	private static void measure(String name, Tree tree, int[] values, boolean print) {
+		int n = values.length;
+		int wrong = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(values[i]);
+		}
+		long insert = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (tree.fetch(values[i]) == null) {
+				wrong++;
+			}
+		}
+		long fetch = System.nanoTime() - start;
+		// Each scan starts at a stored value and covers the width the random values would need to hold SCAN_KEYS keys.
+		long width = (1L << 32) * SCAN_KEYS / n;
+		long visited = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			int lo = values[(int) ((i * 2654435761L) % n)];
+			int hi = (int) Math.min((long) lo + width, Integer.MAX_VALUE);
+			PrimitiveIterator.OfInt range = tree.rangeIterator(lo, hi);
+			while (range.hasNext()) {
+				range.nextInt();
+				visited++;
+			}
+		}
+		long scan = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i += 2) {
+			if (!tree.delete(values[i])) {
+				wrong++;
+			}
+		}
+		long delete = System.nanoTime() - start;
+		if (print) {
+			System.out.println("  " + name + ": insert=" + perOp(insert, n) + " fetch=" + perOp(fetch, n)
+					+ " scan=" + perOp(scan, Math.max(visited, 1)) + " per key (" + visited + " visited)"
+					+ " delete=" + perOp(delete, (n + 1) / 2) + " ns/op" + (wrong != 0 ? " WRONG RESULTS: " + wrong : ""));
+		}
+	}
+	/**
+	 * Formats the nanoseconds per operation.
+	 * @param nanos = The nanoseconds taken by all operations.
+	 * @param operations = The number of operations.
+	 * @return The nanoseconds per operation.
+	 */
+	private static String perOp(long nanos, long operations) {
+		return String.format("%.1f", ((double) nanos) / operations);
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * Compares LQHashed.fetchAll and insertAll against calling fetch and insert once per key, for batches of 1,000 and
+ * 10,000 keys from a table much larger than the CPU caches, so most probes miss the cache. Half of the keys fetched are
+ * stored and half are not. Each measurement is the best of several passes over every batch. The repository has no
+ * build, so this is a plain main rather than a JMH harness; the passes stand in for JMH's warm-up iterations.
+ * Run with: java BatchFetchBenchmark [keys]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class BatchFetchBenchmark {
+	// The batch sizes to measure.
+	private static final int[] BATCHES = { 1000, 10000 };
+	// The number of passes each measurement takes the best of.
+	private static final int PASSES = 5;
+
+	/**
+	 * Builds the tables and outputs one line per batch size.
+	 * @param args = The number of keys stored.
+	 */
+	public static void main(String[] args) {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		String[] stored = new String[keys];
+		String[] queries = new String[keys];
+		for (int i = 0; i < keys; i++) {
+			stored[i] = "listing-" + i;
+		}
+		for (int i = 0; i < keys; i++) {
+			// Every other query is a key that was never stored. Spread the queries over the whole table.
+			int k = (int) ((i * 2654435761L) % keys);
+			queries[i] = (i & 1) == 0 ? stored[k] : "absent-" + k;
+		}
+		for (int b = 0; b < BATCHES.length; b++) {
+			int batch = BATCHES[b];
+			String[][] batches = split(queries, batch);
+			String[][] inserts = split(stored, batch);
+			String[] out = new String[batch];
+			// Insert every key one at a time into one table and in batches into another.
+			long single = Long.MAX_VALUE;
+			long batched = Long.MAX_VALUE;
+			LQHashed table = null;
+			for (int pass = 0; pass < PASSES; pass++) {
+				LQHashed one = new LQHashed(keys, false, new Murmur3Hash());
+				long start = System.nanoTime();
+				for (int i = 0; i < keys; i++) {
+					one.insert(stored[i]);
+				}
+				single = Math.min(single, System.nanoTime() - start);
+				table = new LQHashed(keys, false, new Murmur3Hash());
+				start = System.nanoTime();
+				for (int i = 0; i < inserts.length; i++) {
+					table.insertAll(inserts[i]);
+				}
+				batched = Math.min(batched, System.nanoTime() - start);
+			}
+			report("insert", batch, keys, single, batched);
+			// Fetch every query one at a time, then in batches, checking that both give the same answers.
+			single = Long.MAX_VALUE;
+			batched = Long.MAX_VALUE;
+			int mismatches = 0;
+			for (int pass = 0; pass < PASSES; pass++) {
+				long start = System.nanoTime();
+				int found = 0;
+				for (int i = 0; i < batches.length; i++) {
+					for (int k = 0; k < batches[i].length; k++) {
+						if (table.fetch(batches[i][k]) != null) {
+							found++;
+						}
+					}
+				}
+				single = Math.min(single, System.nanoTime() - start);
+				start = System.nanoTime();
+				for (int i = 0; i < batches.length; i++) {
+					table.fetchAll(batches[i], out);
+					for (int k = 0; k < batches[i].length; k++) {
+						if (out[k] != null) {
+							found--;
+						}
+					}
+				}
+				batched = Math.min(batched, System.nanoTime() - start);
+				mismatches += Math.abs(found);
+			}
+			report("fetch", batch, keys, single, batched);
+			if (mismatches != 0) {
+				System.out.println("  fetchAll and fetch disagreed on " + mismatches + " keys");
+			}
+		}
+	}
+	/**
+	 * Splits keys into consecutive batches, the last one possibly shorter.
+	 * @param keys = The keys.
+	 * @param batch = The batch size.
+	 * @return The batches.
+	 */
+	private static String[][] split(String[] keys, int batch) {
+		String[][] batches = new String[(keys.length + batch - 1) / batch][];
+		for (int i = 0; i < batches.length; i++) {
+			int length = Math.min(batch, keys.length - i * batch);
+			batches[i] = new String[length];
+			System.arraycopy(keys, i * batch, batches[i], 0, length);
+		}
+		return batches;
+	}
+	/**
+	 * Outputs a line comparing the single and batched times of one operation.
+	 * @param name = The operation.
+	 * @param batch = The batch size.
+	 * @param keys = The number of keys processed.
+	 * @param single = The nanoseconds taken one key at a time.
+	 * @param batched = The nanoseconds taken in batches.
+	 */
+	private static void report(String name, int batch, int keys, long single, long batched) {
+		System.out.println(name + " batch=" + batch + ": single=" + String.format("%.1f", ((double) single) / keys) + " ns/key"
+				+ " batched=" + String.format("%.1f", ((double) batched) / keys) + " ns/key"
+				+ " speedup=" + String.format("%.2f", ((double) single) / batched));
+	}
+}
@@ -1,3 +1,14 @@
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * @author Sean Kurtz
  * @version 1.0
@@ -6,6 +17,8 @@
 public class BinarySearchTree {
 	// The root node of the tree
 	public TreeNode root;
+	// Bulk builds of at least this many values build their halves as fork/join tasks, smaller ones on the current thread.
+	static final int PARALLEL_BUILD_THRESHOLD = 1 << 16;
 	
 	/**
 	 * Constructs a new empty binary search tree.
@@ -14,15 +27,12 @@ public class BinarySearchTree {
 		root = null;
 	}
 	/**
-	 * A method which inserts a new node into the tree.
+	 * A method which inserts a new node into the tree. Every node on the way down counts the new node in its subtree size.
+	 * A value equal to one already in the tree is inserted on its right.
 	 * @param value The data value for the node we are going to insert
 	 */
 	public void insert(int value) {
-		// Create our wrappers
-		TreeNodeWrapper p = new TreeNodeWrapper();
-		TreeNodeWrapper c = new TreeNodeWrapper();
-		
-		// Create the node to insert.
+		// Create the node to insert. This is the only allocation of any operation.
 		TreeNode n = new TreeNode();
 		n.data = value;
 		
@@ -30,41 +40,45 @@ public class BinarySearchTree {
 		if (root == null) {
 			// Insert as root node
 			root = n;
+			return;
 		}
-		// Otherwise
-		else {
-			// Find where to insert
-			findNode(value, p, c);
+		// Otherwise walk down to the parent of the new node.
+		TreeNode p = root;
+		while (true) {
+			// The new node will be in this node's subtree.
+			p.size++;
 			// If the value to insert is less than the parents value
-			if (value < p.get().data ) {
+			if (value < p.data) {
 				// Insert on the left of parent
-				p.get().left = n;
+				if (p.left == null) {
+					p.left = n;
+					return;
+				}
+				p = p.left;
 			}
 			// Otherwise
 			else {
 				// Insert on the right of parent
-				p.get().right = n;
+				if (p.right == null) {
+					p.right = n;
+					return;
+				}
+				p = p.right;
 			}
 		}
-		
 	}
 	/**
 	 * A method which fetches a node given by a parameter from the tree.
 	 * @param The data value of the node we are trying to fetch
-	 * @return true if we fetched the value, false otherwise.
+	 * @return The value if it is in the tree, null otherwise.
 	 */
 	public Integer fetch(int target) {
-		// Whether we found the item to delete.
-		boolean found;
-		// Create our wrappers.
-		TreeNodeWrapper parent = new TreeNodeWrapper();
-		TreeNodeWrapper child = new TreeNodeWrapper();
 		// Try to find the item
-		found = findNode(target, parent, child);
+		TreeNode node = findNode(target);
 		// If we found it
-		if (found) {
+		if (node != null) {
 			// Return it.
-			return child.get().data;
+			return node.data;
 		}
 		// Otherwise
 		else {
@@ -73,212 +87,540 @@ public class BinarySearchTree {
 		}
 	}
 	/**
-	 * A method which deletes a node given by a parameter from the tree.
+	 * A method which deletes a node given by a parameter from the tree. Every node above the node that is unlinked
+	 * stops counting it in its subtree size.
 	 * @param target The data value of the node we are trying to delete
 	 * @return true if we deleted the node, false otherwise.
 	 */
 	public boolean delete(int target) {
-		// Whether we found the item to delete.
-		boolean found;
-		// Create our wrappers
-		TreeNodeWrapper parent = new TreeNodeWrapper();
-		TreeNodeWrapper child = new TreeNodeWrapper();
+		TreeNode node;
+		TreeNode parent;
 		TreeNode largest;
 		TreeNode nextLargest;
-		// Try to find the item.
-		found = findNode(target, parent, child);
-		// If we couldn't find it.
-		if (!found) {
+		node = findNode(target);
+		// If we couldn't find the item.
+		if (node == null) {
 			// Return false
 			return false;
 		}
-		// Otherwise, we go through all the possible cases
+		// The node will no longer be below any of the nodes on the path down to it. The last of them is its parent,
+		// there are none if the node is the root.
+		parent = null;
+		for (TreeNode n = root; n != node; n = target < n.data ? n.left : n.right) {
+			n.size--;
+			parent = n;
+		}
+		// Case 1 and 2: The node has at most one child, that child (or null) takes its place.
+		if (node.left == null || node.right == null) {
+			replaceChild(parent, node, node.left != null ? node.left : node.right);
+		}
+		// Case 3: The node has two children
 		else {
-			// Case 1: The node has no children
-			if (child.get().left == null && child.get().right == null) {
-				// The node we are deleting was a left child
-				if (parent.get().left == child.get()) {
-					parent.get().left = null;
-				}
-				// Otherwise the node we are deleting was a right child.
-				else {
-					parent.get().right = null;
+			// The node stays, but loses one node from its subtree.
+			node.size--;
+			nextLargest = node.left;
+			largest = nextLargest.right;
+			// If the left child (nextLargest) has a right subtree
+			if (largest != null) {
+				nextLargest.size--;
+				// Continue to move down the right subtree until we hit null
+				while(largest.right != null) {
+					nextLargest = largest;
+					largest = largest.right;
+					nextLargest.size--;
 				}
+				// Overwrite the data
+				node.data = largest.data;
+				// Save the left subtree
+				nextLargest.right = largest.left;
 			}
-			// Case 2: The node has one child
-			else if (child.get().left == null || child.get().right == null) {
-				// Node we are deleting is a left child
-				if (parent.get().left == child.get()) {
-					// If the node we are deleting HAS a left child
-					if (child.get().left != null)
-						parent.get().left = child.get().left;
-					// Otherwise
-					else
-						parent.get().right = child.get().right;
-				}
-				// Node we are deleting is a right child
-				else {
-					// If the node we are deleting HAS a left child
-					if (child.get().left != null)
-						parent.get().right = child.get().left;
-					// Otherwise
-					else 
-						parent.get().right = child.get().right;
-				}
-			}
-			// Case 3: The node has two children
+			// Otherwise, the left child does not have a right subtree
 			else {
-				nextLargest = child.get().left;
-				largest = nextLargest.right;
-				// If the left child (nextLargest) has a right subtree
-				if (largest != null) {
-					// Continue to move down the right subtree until we hit null
-					while(largest.right != null) {
-						nextLargest = largest;
-						largest = largest.right;
-					}
-					// Overwrite the data
-					child.get().data = largest.data;
-					// Save the left subtree
-					nextLargest.right = largest.left;
-				}
-				// Otherwise, the left child does not have a right subtree
-				else {
-					// Save the right subtree
-					nextLargest.right = child.get().right;
-					// If the deleted node is a left child
-					if (parent.get().left == child.get()) {
-						// Jump around the node.
-						parent.get().left = nextLargest;
-					}
-					// Otherwise the deleted node is a right child
-					else {
-						// Jump around the node.
-						parent.get().right = nextLargest;
-					}
-				}
+				// Overwrite the data with the left child's, and jump around the left child.
+				node.data = nextLargest.data;
+				node.left = nextLargest.left;
 			}
 		}
 		return true;
 	}
 	/**
-	 * A method which finds a particular node in the tree.
-	 * @param target
-	 * @param parent The 'parent' node. This is so we can move around the tree.
-	 * @param child The 'child' node. This holds what we are trying to find.
-	 * @return true if we found the node, false otherwise.
+	 * Replaces one child of a parent with another node, or replaces the root if the child is the root.
+	 * @param parent The parent of the child, null when child is the root.
+	 * @param child The node being replaced.
+	 * @param replacement The node taking its place, may be null.
 	 */
-	private boolean findNode(int target, TreeNodeWrapper parent, TreeNodeWrapper child) {
-		// Set both parent and child to root node
-		parent.set(root);
-		child.set(root);
-		// If the tree is empty.
-		if (root == null) {
-			return true;
+	private void replaceChild(TreeNode parent, TreeNode child, TreeNode replacement) {
+		if (child == root) {
+			root = replacement;
+		}
+		else if (parent.left == child) {
+			parent.left = replacement;
+		}
+		else {
+			parent.right = replacement;
 		}
-		// While the child is not null
-		while (child.get() != null) {
-			// If the child's data is the same as target, we found the node.
-			if (child.get().data == target) {
-				return true;
+	}
+	/**
+	 * The number of nodes in the tree.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size(root);
+	}
+	/**
+	 * The number of nodes in a subtree.
+	 * @param node The root of the subtree.
+	 * @return The subtree size, 0 for an empty subtree.
+	 */
+	private static int size(TreeNode node) {
+		return node == null ? 0 : node.size;
+	}
+	/**
+	 * Counts the values in the tree that are less than key, in O(height).
+	 * @param key The value to rank.
+	 * @return The number of values less than key.
+	 */
+	public int rank(int key) {
+		int count = 0;
+		TreeNode node = root;
+		while (node != null) {
+			// Everything right of this node is at least its value, so only the left subtree can hold smaller values.
+			if (key <= node.data) {
+				node = node.left;
 			}
-			// Otherwise
+			// This node and its left subtree are all smaller.
 			else {
-				// Move parent down to child.
-				parent.set(child.get());
-				// If the data we are inserting is less than the child
-				if (target < child.get().data) {
-					// Insert on left
-					child.set(child.get().left);
+				count += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return count;
+	}
+	/**
+	 * Counts the values in the tree that are less than or equal to key, in O(height).
+	 * @param key The value to rank.
+	 * @return The number of values at most key.
+	 */
+	private int rankAtMost(int key) {
+		int count = 0;
+		TreeNode node = root;
+		while (node != null) {
+			if (key < node.data) {
+				node = node.left;
+			}
+			else {
+				count += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return count;
+	}
+	/**
+	 * Finds the k-th smallest value in the tree, in O(height).
+	 * @param k The position of the value, 1 is the smallest.
+	 * @return The k-th smallest value, null if k is less than 1 or more than the number of nodes.
+	 */
+	public Integer select(int k) {
+		if (k < 1 || k > size()) {
+			return null;
+		}
+		TreeNode node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			// The k-th smallest is in the left subtree.
+			if (k <= leftSize) {
+				node = node.left;
+			}
+			// It is this node.
+			else if (k == leftSize + 1) {
+				return node.data;
+			}
+			// It is in the right subtree, skip the left subtree and this node.
+			else {
+				k -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+	/**
+	 * Counts the values in the tree between lo and hi, in O(height).
+	 * @param lo The smallest value to count.
+	 * @param hi The largest value to count.
+	 * @return The number of values v with lo <= v <= hi, 0 if lo > hi.
+	 */
+	public int countRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return rankAtMost(hi) - rank(lo);
+	}
+	/**
+	 * An iterator over the values between lo and hi in ascending order. Only the nodes on the path to lo and the nodes
+	 * inside the range are visited, so iterating k values costs O(height + k). The tree must not be changed while iterating.
+	 * @param lo The smallest value to visit.
+	 * @param hi The largest value to visit.
+	 * @return An iterator over the values v with lo <= v <= hi.
+	 */
+	public PrimitiveIterator.OfInt rangeIterator(final int lo, final int hi) {
+		return new PrimitiveIterator.OfInt() {
+			// The nodes whose value and right subtree are still to be visited, the next one on top.
+			private final ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+			{
+				pushLeft(root);
+			}
+			/**
+			 * Pushes the path from node down to the smallest value at least lo, skipping subtrees below lo.
+			 * @param node The root of the subtree to descend.
+			 */
+			private void pushLeft(TreeNode node) {
+				while (node != null) {
+					if (node.data < lo) {
+						node = node.right;
+					}
+					else {
+						stack.push(node);
+						node = node.left;
+					}
 				}
-				// Otherwise
-				else {
-					// Insert on right
-					child.set(child.get().right);
+			}
+			public boolean hasNext() {
+				return !stack.isEmpty() && stack.peek().data <= hi;
+			}
+			public int nextInt() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
 				}
+				TreeNode node = stack.pop();
+				pushLeft(node.right);
+				return node.data;
 			}
+		};
+	}
+	/**
+	 * A method which finds a particular node in the tree. Walks down with a local reference, so it allocates nothing
+	 * and writes nothing, and any number of readers can call it at once.
+	 * @param target The data value of the node we are trying to find.
+	 * @return The first node on the way down whose value is target, null if there is none.
+	 */
+	private TreeNode findNode(int target) {
+		// Start at the root node
+		TreeNode node = root;
+		// While the node is not null
+		while (node != null) {
+			// If the node's data is the same as target, we found the node.
+			if (node.data == target) {
+				return node;
+			}
+			// If the target is less than the node, go left, otherwise go right.
+			node = target < node.data ? node.left : node.right;
+		}
+		return null;
+	}
+	/**
+	 * The orders a traversal can visit the nodes in. L is the left subtree, R the right subtree and N the node itself.
+	 */
+	public enum Traversal {
+		LNR(true, 1), LRN(true, 2), NLR(true, 0), NRL(false, 0), RLN(false, 2), RNL(false, 1);
+		
+		// Whether the left subtree is visited before the right one.
+		final boolean leftFirst;
+		// When the node is visited: 0 before its subtrees, 1 between them, 2 after them.
+		final int nodePosition;
+		
+		Traversal(boolean leftFirst, int nodePosition) {
+			this.leftFirst = leftFirst;
+			this.nodePosition = nodePosition;
 		}
-		return false;
 	}
 	/**
 	 * A method to perform a LEFT-ROOT-RIGHT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void TraverseLNR(TreeNode root) {
-		// Traverse the left subtree.
-		if (root.left != null) {
-			TraverseLNR(root.left);
-		}
-		// Operate on the root.
-		System.out.println(root.data);
-		// Traverse the right subtree.
-		if (root.right != null) {
-			TraverseLNR(root.right);
-		}
+		traverse(root, Traversal.LNR, System.out::println);
 	}
 	/**
 	 * A method to perform a LEFT-RIGHT-ROOT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void traverseLRN(TreeNode root) {
-		if (root.left != null){
-			traverseLRN(root.left);
-		}
-		if (root.right != null) {
-			traverseLRN(root.right);
-		}
-		System.out.println(root.data);
+		traverse(root, Traversal.LRN, System.out::println);
 	}
 	/**
 	 * A method to perform a ROOT-LEFT-RIGHT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void traverseNLR(TreeNode root) {
-		System.out.println(root.data);
-		if (root.left != null) {
-			traverseNLR(root.left);
-		}
-		if (root.right != null) {
-			traverseNLR(root.right);
-		}
+		traverse(root, Traversal.NLR, System.out::println);
 	}
 	/**
 	 * A method to perform a ROOT-RIGHT-LEFT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void traverseNRL(TreeNode root) {
-		System.out.println(root.data);
-		if (root.right != null) {
-			traverseNRL(root.right);
-		}
-		if (root.left != null) {
-			traverseNRL(root.left);
-		}
+		traverse(root, Traversal.NRL, System.out::println);
 	}
 	/**
 	 * A method to perform a RIGHT-LEFT-ROOT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void traverseRLN(TreeNode root) {
-		if (root.right != null) {
-			traverseRLN(root.right);
-		}
-		if (root.left != null) {
-			traverseRLN(root.left);
-		}
-		System.out.println(root.data);
+		traverse(root, Traversal.RLN, System.out::println);
 	}
 	/**
 	 * A method to perform a RIGHT-ROOT-LEFT traversal, outputting along the way.
 	 * @param root The node where we wish to start.
 	 */
 	public void traverseRNL(TreeNode root) {
-		if (root.right != null) {
-			traverseRNL(root.right);
+		traverse(root, Traversal.RNL, System.out::println);
+	}
+	/**
+	 * Visits every value in the tree in the given order. The traversal uses an explicit stack rather than recursion,
+	 * so it works on trees of any depth.
+	 * @param order The order to visit the values in.
+	 * @param visitor The visitor each value is passed to.
+	 */
+	public void traverse(Traversal order, IntConsumer visitor) {
+		traverse(root, order, visitor);
+	}
+	/**
+	 * Visits every value in a subtree in the given order.
+	 * @param start The root of the subtree, may be null.
+	 * @param order The order to visit the values in.
+	 * @param visitor The visitor each value is passed to.
+	 */
+	public void traverse(TreeNode start, Traversal order, IntConsumer visitor) {
+		PrimitiveIterator.OfInt it = iterator(start, order);
+		while (it.hasNext()) {
+			visitor.accept(it.nextInt());
+		}
+	}
+	/**
+	 * A lazy iterator over the values in the tree in the given order. Each value costs O(1) amortized, and stopping
+	 * early costs nothing for the values not reached. The tree must not be changed while iterating.
+	 * @param order The order to visit the values in.
+	 * @return An iterator over the values.
+	 */
+	public PrimitiveIterator.OfInt iterator(Traversal order) {
+		return iterator(root, order);
+	}
+	/**
+	 * A lazy iterator over the values in a subtree in the given order.
+	 * @param start The root of the subtree, may be null.
+	 * @param order The order to visit the values in.
+	 * @return An iterator over the values.
+	 */
+	public PrimitiveIterator.OfInt iterator(TreeNode start, Traversal order) {
+		return new TraversalIterator(start, order);
+	}
+	/**
+	 * A lazy stream of the values in the tree in the given order. Short-circuiting operations such as findFirst,
+	 * anyMatch or limit stop the traversal early.
+	 * @param order The order to visit the values in.
+	 * @return A sequential stream of the values.
+	 */
+	public IntStream stream(Traversal order) {
+		int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+		// An in order traversal produces the values ascending.
+		if (order == Traversal.LNR) {
+			characteristics |= Spliterator.SORTED;
+		}
+		return StreamSupport.intStream(Spliterators.spliterator(iterator(order), size(), characteristics), false);
+	}
+	/**
+	 * An iterator that walks a subtree in any of the six orders with an explicit stack. The stack holds at most one
+	 * path from the start node, so it never grows beyond the height of the subtree.
+	 */
+	private static final class TraversalIterator implements PrimitiveIterator.OfInt {
+		// The nodes still to be visited or descended from, the next one on top.
+		private final ArrayDeque<TreeNode> stack = new ArrayDeque<TreeNode>();
+		// Whether the left subtree is visited before the right one.
+		private final boolean leftFirst;
+		// When the node is visited relative to its subtrees.
+		private final int nodePosition;
+		
+		TraversalIterator(TreeNode start, Traversal order) {
+			leftFirst = order.leftFirst;
+			nodePosition = order.nodePosition;
+			if (start == null) {
+				return;
+			}
+			if (nodePosition == 0) {
+				stack.push(start);
+			}
+			else {
+				descend(start);
+			}
+		}
+		/**
+		 * The subtree visited first.
+		 */
+		private TreeNode first(TreeNode node) {
+			return leftFirst ? node.left : node.right;
+		}
+		/**
+		 * The subtree visited second.
+		 */
+		private TreeNode second(TreeNode node) {
+			return leftFirst ? node.right : node.left;
+		}
+		/**
+		 * Pushes the path from node down to the first node to visit in its subtree.
+		 * @param node The root of the subtree, may be null.
+		 */
+		private void descend(TreeNode node) {
+			while (node != null) {
+				stack.push(node);
+				// Node in the middle: the first node is at the end of the first subtree's edge.
+				if (nodePosition == 1) {
+					node = first(node);
+				}
+				// Node last: the first node is the first leaf, going to the second subtree when there is no first one.
+				else {
+					node = first(node) != null ? first(node) : second(node);
+				}
+			}
+		}
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+		public int nextInt() {
+			if (stack.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			TreeNode node = stack.pop();
+			// Node first: visit it, then its first subtree, then its second.
+			if (nodePosition == 0) {
+				if (second(node) != null) {
+					stack.push(second(node));
+				}
+				if (first(node) != null) {
+					stack.push(first(node));
+				}
+			}
+			// Node in the middle: its first subtree is done, so the second subtree comes next.
+			else if (nodePosition == 1) {
+				descend(second(node));
+			}
+			// Node last: if we just finished the parent's first subtree, its second subtree comes next.
+			else if (!stack.isEmpty()) {
+				TreeNode parent = stack.peek();
+				if (first(parent) == node) {
+					descend(second(parent));
+				}
+			}
+			return node.data;
+		}
+	}
+	/**
+	 * Replaces the contents of the tree with the given values, building a perfectly balanced tree in O(n). Each node
+	 * is the middle value of its range, so the tree is ceil(log2(n + 1)) levels deep. Large inputs build their left and
+	 * right halves in parallel.
+	 * @param sorted The values to load, in ascending order. Duplicates are allowed.
+	 */
+	public void bulkLoad(int[] sorted) {
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i - 1] > sorted[i]) {
+				throw new IllegalArgumentException("Values are not sorted at index " + i);
+			}
+		}
+		root = build(sorted, 0, sorted.length);
+	}
+	/**
+	 * Merges the values of another tree into this one, in O(n + m). Both trees are flattened in order, the two runs
+	 * are merged and this tree is rebuilt balanced. The other tree is left unchanged.
+	 * @param other The tree whose values are added to this one.
+	 */
+	public void merge(BinarySearchTree other) {
+		int[] mine = toSortedArray();
+		int[] theirs = other.toSortedArray();
+		int[] merged = new int[mine.length + theirs.length];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		// Take the smaller head of the two runs until one runs out.
+		while (i < mine.length && j < theirs.length) {
+			merged[k++] = mine[i] <= theirs[j] ? mine[i++] : theirs[j++];
 		}
-		System.out.println(root.data);
-		if (root.left != null) {
-			traverseRNL(root.left);
+		// Copy whatever is left of either run.
+		System.arraycopy(mine, i, merged, k, mine.length - i);
+		k += mine.length - i;
+		System.arraycopy(theirs, j, merged, k, theirs.length - j);
+		root = build(merged, 0, merged.length);
+	}
+	/**
+	 * The values in the tree in ascending order.
+	 * @return A new array of every value in the tree.
+	 */
+	public int[] toSortedArray() {
+		int[] values = new int[size()];
+		PrimitiveIterator.OfInt it = iterator(Traversal.LNR);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = it.nextInt();
+		}
+		return values;
+	}
+	/**
+	 * Builds a balanced subtree from a range of sorted values.
+	 * @param sorted The sorted values.
+	 * @param from The first index of the range, inclusive.
+	 * @param to The last index of the range, exclusive.
+	 * @return The root of the subtree, null for an empty range.
+	 */
+	private static TreeNode build(int[] sorted, int from, int to) {
+		if (to - from >= PARALLEL_BUILD_THRESHOLD) {
+			return ForkJoinPool.commonPool().invoke(new BuildTask(sorted, from, to));
+		}
+		return buildSerial(sorted, from, to);
+	}
+	/**
+	 * Builds a balanced subtree from a range of sorted values on the current thread. The recursion is only
+	 * log2(n) deep.
+	 * @param sorted The sorted values.
+	 * @param from The first index of the range, inclusive.
+	 * @param to The last index of the range, exclusive.
+	 * @return The root of the subtree, null for an empty range.
+	 */
+	private static TreeNode buildSerial(int[] sorted, int from, int to) {
+		if (from >= to) {
+			return null;
+		}
+		int mid = (from + to) >>> 1;
+		TreeNode node = new TreeNode();
+		node.data = sorted[mid];
+		node.left = buildSerial(sorted, from, mid);
+		node.right = buildSerial(sorted, mid + 1, to);
+		node.size = to - from;
+		return node;
+	}
+	/**
+	 * A fork/join task which builds the left half of a range in a forked task while building the right half itself.
+	 */
+	private static final class BuildTask extends RecursiveTask<TreeNode> {
+		private static final long serialVersionUID = 1L;
+		private final int[] sorted;
+		private final int from;
+		private final int to;
+		
+		BuildTask(int[] sorted, int from, int to) {
+			this.sorted = sorted;
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected TreeNode compute() {
+			if (to - from < PARALLEL_BUILD_THRESHOLD) {
+				return buildSerial(sorted, from, to);
+			}
+			int mid = (from + to) >>> 1;
+			TreeNode node = new TreeNode();
+			node.data = sorted[mid];
+			BuildTask left = new BuildTask(sorted, from, mid);
+			left.fork();
+			node.right = new BuildTask(sorted, mid + 1, to).compute();
+			node.left = left.join();
+			node.size = to - from;
+			return node;
 		}
 	}
 	/**
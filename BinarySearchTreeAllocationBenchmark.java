@@ -0,0 +1,100 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Measures the bytes BinarySearchTree allocates per insert, fetch, delete and update, and the time each takes.
+ * The bytes are read from the JVM's per-thread allocation counter, so this needs a HotSpot JVM.
+ * Only insert should allocate: the new TreeNode, and the Integer box of its data for values outside the Integer cache.
+ * Each phase is run once to warm up and once measured.
+ * Run with: java BinarySearchTreeAllocationBenchmark [nodes] [operations]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class BinarySearchTreeAllocationBenchmark {
+	// The per-thread allocation counter.
+	private static final com.sun.management.ThreadMXBean THREADS =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Builds a tree and outputs the bytes allocated and the time taken per operation of each kind.
+	 * @param args = The number of nodes in the tree, and the number of operations of each kind.
+	 */
+	public static void main(String[] args) {
+		int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		for (int run = 0; run < 2; run++) {
+			System.out.println(run == 0 ? "warm-up:" : "measured:");
+			measure(nodes, operations);
+		}
+	}
+	/**
+	 * Builds a tree of random values and measures each kind of operation on it.
+	 * @param nodes = The number of nodes in the tree.
+	 * @param operations = The number of operations of each kind.
+	 */
+	private static void measure(int nodes, int operations) {
+		Random random = new Random(42);
+		// Even values are stored, so odd values are misses.
+		int[] values = new int[nodes];
+		for (int i = 0; i < nodes; i++) {
+			values[i] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+		}
+		BinarySearchTree tree = new BinarySearchTree();
+		long bytes = allocated();
+		long start = System.nanoTime();
+		for (int i = 0; i < nodes; i++) {
+			tree.insert(values[i]);
+		}
+		report("insert", nodes, allocated() - bytes, System.nanoTime() - start);
+		long found = 0;
+		bytes = allocated();
+		start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			if (tree.fetch(values[i % nodes]) != null) {
+				found++;
+			}
+		}
+		report("fetch hit", operations, allocated() - bytes, System.nanoTime() - start);
+		bytes = allocated();
+		start = System.nanoTime();
+		for (int i = 0; i < operations; i++) {
+			if (tree.fetch(values[i % nodes] + 1) != null) {
+				found++;
+			}
+		}
+		report("fetch miss", operations, allocated() - bytes, System.nanoTime() - start);
+		// Delete half of the values, then put them back with update, which deletes a stored value and inserts another.
+		int half = Math.min(operations, nodes / 2);
+		bytes = allocated();
+		start = System.nanoTime();
+		for (int i = 0; i < half; i++) {
+			tree.delete(values[i]);
+		}
+		report("delete", half, allocated() - bytes, System.nanoTime() - start);
+		bytes = allocated();
+		start = System.nanoTime();
+		for (int i = 0; i < half; i++) {
+			tree.update(values[half + i], values[i]);
+		}
+		report("update", half, allocated() - bytes, System.nanoTime() - start);
+		System.out.println("  (" + found + " fetches found a value, size=" + tree.size() + ")");
+	}
+	/**
+	 * The bytes the current thread has allocated so far.
+	 * @return The allocated bytes.
+	 */
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	/**
+	 * Outputs a report line for one kind of operation.
+	 * @param name = The kind of operation.
+	 * @param operations = The number of operations.
+	 * @param bytes = The bytes allocated by all of them.
+	 * @param nanos = The time taken by all of them.
+	 */
+	private static void report(String name, int operations, long bytes, long nanos) {
+		System.out.println("  " + name + ": ops=" + operations + " bytesPerOp=" + String.format("%.2f", ((double) bytes) / operations)
+				+ " nsPerOp=" + String.format("%.1f", ((double) nanos) / operations));
+	}
+}
@@ -0,0 +1,164 @@
+/**
+ * A blocked Bloom filter. Every key sets its bits inside one 512 bit block (eight longs, one cache line), so a check
+ * touches a single cache line. Answers "definitely not present" or "maybe present", and is used in front of LQHashed
+ * to reject fetches and deletes of keys that were never inserted without probing the storage area.
+ * Keys cannot be removed, so the filter is rebuilt from the live keys whenever the structure it guards is rehashed.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class BlockedBloomFilter {
+	// The number of longs in a block.
+	private static final int BLOCK_LONGS = 8;
+	
+	// The bits, BLOCK_LONGS longs per block.
+	private long[] bits;
+	
+	// The number of blocks, and the number of bits each key sets.
+	private int blocks;
+	private int hashes;
+	
+	// The false positive rate the filter was sized for, and the number of keys it was sized for.
+	private double falsePositiveRate;
+	private int expectedKeys;
+	
+	// The number of keys added, checks made and checks answered "definitely not present".
+	private int keys;
+	private long checks;
+	private long rejections;
+	
+	/**
+	 * Constructs an empty filter sized so that expectedKeys keys give roughly the requested false positive rate.
+	 * @param expectedKeys = The number of keys the filter will hold.
+	 * @param falsePositiveRate = The fraction of absent keys allowed to be answered "maybe present", for example 0.01.
+	 */
+	public BlockedBloomFilter(int expectedKeys, double falsePositiveRate) {
+		this.expectedKeys = Math.max(expectedKeys, 1);
+		this.falsePositiveRate = falsePositiveRate;
+		// The optimal number of bits per key and number of bits set per key for a standard Bloom filter.
+		double bitsPerKey = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		hashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerKey * Math.log(2))));
+		// Blocking makes the bits fill up unevenly, so give it a little more room than the standard formula.
+		long totalBits = (long) Math.ceil(this.expectedKeys * bitsPerKey * 1.1);
+		blocks = (int) Math.max(1, (totalBits + 511) / 512);
+		bits = new long[blocks * BLOCK_LONGS];
+	}
+	/**
+	 * Adds a key to the filter.
+	 * @param hash = A hash code of the key, the same one passed to mightContain.
+	 */
+	public void add(int hash) {
+		long h = spread(hash);
+		int base = blockOf(h) * BLOCK_LONGS;
+		// The low 32 bits pick the positions inside the block by double hashing, the high 32 bits picked the block.
+		int step = ((int) h >>> 9) | 1;
+		int bit = (int) h;
+		for (int i = 0; i < hashes; i++) {
+			bits[base + ((bit & 511) >>> 6)] |= 1L << bit;
+			bit += step;
+		}
+		keys++;
+	}
+	/**
+	 * Checks whether a key may have been added to the filter.
+	 * @param hash = A hash code of the key.
+	 * @return False if the key was definitely never added, true if it may have been.
+	 */
+	public boolean mightContain(int hash) {
+		long h = spread(hash);
+		int base = blockOf(h) * BLOCK_LONGS;
+		int step = ((int) h >>> 9) | 1;
+		int bit = (int) h;
+		checks++;
+		for (int i = 0; i < hashes; i++) {
+			if ((bits[base + ((bit & 511) >>> 6)] & (1L << bit)) == 0) {
+				rejections++;
+				return false;
+			}
+			bit += step;
+		}
+		return true;
+	}
+	/**
+	 * Removes every key from the filter. The counts of checks and rejections are kept.
+	 */
+	public void clear() {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = 0;
+		}
+		keys = 0;
+	}
+	/**
+	 * Mixes a hash code into 64 bits with the murmur3 finalizer.
+	 * @param hash = The hash code.
+	 * @return The mixed bits.
+	 */
+	private static long spread(int hash) {
+		long h = hash * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	/**
+	 * Picks the block for a key from the high bits of its mixed hash.
+	 * @param h = The mixed hash.
+	 * @return The block index.
+	 */
+	private int blockOf(long h) {
+		return (int) (((h >>> 32) * blocks) >>> 32);
+	}
+	/**
+	 * The false positive rate the filter was sized for.
+	 * @return The configured rate.
+	 */
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+	/**
+	 * Estimates the current false positive rate from the number of keys added, which goes over the configured rate
+	 * once more keys than expected have been added.
+	 * @return The estimated rate.
+	 */
+	public double getEstimatedFalsePositiveRate() {
+		double bitCount = (double) blocks * 512;
+		return Math.pow(1 - Math.exp(-hashes * keys / bitCount), hashes);
+	}
+	/**
+	 * The number of keys the filter was sized for.
+	 * @return The expected number of keys.
+	 */
+	public int getExpectedKeys() {
+		return expectedKeys;
+	}
+	/**
+	 * The number of keys added since the filter was built or cleared.
+	 * @return The number of keys.
+	 */
+	public int getKeys() {
+		return keys;
+	}
+	/**
+	 * The number of checks made.
+	 * @return The number of checks.
+	 */
+	public long getChecks() {
+		return checks;
+	}
+	/**
+	 * The number of checks answered "definitely not present".
+	 * @return The number of rejections.
+	 */
+	public long getRejections() {
+		return rejections;
+	}
+	/**
+	 * The memory used by the bits of the filter.
+	 * @return The number of bytes.
+	 */
+	public long getMemoryBytes() {
+		return 8L * bits.length;
+	}
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed budget of page frames in front of a FileChannel, with CLOCK replacement. A page is pinned while it is in use
+ * and cannot be evicted until it is unpinned. Each frame has a recency bit that pinning sets, and the clock hand sweeps
+ * the frames, clearing set bits and evicting the first unpinned frame whose bit is already clear. Dirty frames are
+ * written back when they are evicted or flushed.
+ * The page table is a LQHashedIntIntMap from page number to frame. It is rebuilt once evictions have left deleted
+ * locations for a quarter of the frames in it, so probes always reach an empty location quickly.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+final class BufferPool {
+	// The file the pages live in.
+	private final FileChannel channel;
+	// The size of a page in bytes.
+	private final int pageBytes;
+	
+	// The contents of each frame, the page it holds (-1 for none), and its pin count, dirty bit and recency bit.
+	private final ByteBuffer[] frames;
+	private final int[] framePage;
+	private final int[] pins;
+	private final boolean[] dirty;
+	private final boolean[] referenced;
+	// The next frame the clock hand will look at.
+	private int hand;
+	
+	// Page number to frame, and the number of pages removed from it since it was last rebuilt.
+	private LQHashedIntIntMap pageTable;
+	private int removed;
+	
+	// Pins served from a frame, pins that had to read the page, and pages written back.
+	private long hits;
+	private long reads;
+	private long writes;
+	
+	/**
+	 * Creates an empty pool.
+	 * @param channel = The file the pages live in.
+	 * @param pageBytes = The size of a page.
+	 * @param frameCount = The number of pages the pool can hold at once.
+	 */
+	BufferPool(FileChannel channel, int pageBytes, int frameCount) {
+		this.channel = channel;
+		this.pageBytes = pageBytes;
+		frames = new ByteBuffer[frameCount];
+		framePage = new int[frameCount];
+		pins = new int[frameCount];
+		dirty = new boolean[frameCount];
+		referenced = new boolean[frameCount];
+		for (int i = 0; i < frameCount; i++) {
+			frames[i] = ByteBuffer.allocate(pageBytes);
+			framePage[i] = -1;
+		}
+		pageTable = newPageTable();
+	}
+	/**
+	 * Pins a page, reading it from the file if it is not already in a frame.
+	 * @param page = The page number.
+	 * @return The frame holding the page. Its buffer is frame(f).
+	 * @throws IOException if the page, or a dirty page it evicts, cannot be read or written.
+	 */
+	int pin(int page) throws IOException {
+		int f = pageTable.fetch(page, -1);
+		if (f != -1) {
+			hits++;
+		}
+		else {
+			f = evict();
+			ByteBuffer buffer = frames[f];
+			buffer.clear();
+			long at = (long) page * pageBytes;
+			// Read the whole page. Past the end of the file the rest stays zero.
+			while (buffer.hasRemaining()) {
+				int n = channel.read(buffer, at + buffer.position());
+				if (n < 0) {
+					break;
+				}
+			}
+			while (buffer.hasRemaining()) {
+				buffer.put((byte) 0);
+			}
+			reads++;
+			assign(f, page);
+		}
+		pins[f]++;
+		referenced[f] = true;
+		return f;
+	}
+	/**
+	 * Pins a page that is new to the file, without reading it. The frame starts zeroed and dirty.
+	 * @param page = The page number.
+	 * @return The frame holding the page.
+	 * @throws IOException if a dirty page it evicts cannot be written.
+	 */
+	int pinNew(int page) throws IOException {
+		int f = pageTable.fetch(page, -1);
+		if (f == -1) {
+			f = evict();
+			assign(f, page);
+		}
+		ByteBuffer buffer = frames[f];
+		for (int i = 0; i < pageBytes; i += 4) {
+			buffer.putInt(i, 0);
+		}
+		pins[f]++;
+		referenced[f] = true;
+		dirty[f] = true;
+		return f;
+	}
+	/**
+	 * Releases a pin taken by pin or pinNew.
+	 * @param f = The frame.
+	 * @param modified = Whether the page was changed while pinned.
+	 */
+	void unpin(int f, boolean modified) {
+		pins[f]--;
+		dirty[f] |= modified;
+	}
+	/**
+	 * The buffer of a frame. Only valid while the frame is pinned.
+	 * @param f = The frame.
+	 * @return The page contents, addressed with absolute gets and puts.
+	 */
+	ByteBuffer frame(int f) {
+		return frames[f];
+	}
+	/**
+	 * Records that a frame now holds a page.
+	 * @param f = The frame, already empty.
+	 * @param page = The page number.
+	 */
+	private void assign(int f, int page) {
+		framePage[f] = page;
+		dirty[f] = false;
+		mapPage(page, f);
+	}
+	/**
+	 * Advances the clock hand to the first unpinned frame whose recency bit is clear, clearing the bits it passes,
+	 * and empties that frame, writing it back if it is dirty.
+	 * @return The empty frame.
+	 * @throws IOException if the evicted page cannot be written.
+	 */
+	private int evict() throws IOException {
+		// Two sweeps clear every bit, so a third without finding a frame means everything is pinned.
+		for (int passed = 0; passed < 3 * frames.length; passed++) {
+			int f = hand;
+			hand = (hand + 1) % frames.length;
+			if (pins[f] > 0) {
+				continue;
+			}
+			if (referenced[f]) {
+				referenced[f] = false;
+				continue;
+			}
+			if (framePage[f] != -1) {
+				if (dirty[f]) {
+					write(f);
+				}
+				pageTable.delete(framePage[f]);
+				framePage[f] = -1;
+				// Deleted locations slow every later probe, so start a clean table once there are enough of them.
+				if (++removed > frames.length / 4) {
+					rebuildPageTable();
+				}
+			}
+			return f;
+		}
+		throw new IllegalStateException("All " + frames.length + " pages in the buffer pool are pinned");
+	}
+	/**
+	 * Creates an empty page table. LQHashedIntIntMap refuses inserts once it reaches its loading factor a little
+	 * before length keys, so it is sized with a third more room than there are frames.
+	 * @return The empty page table.
+	 */
+	private LQHashedIntIntMap newPageTable() {
+		return new LQHashedIntIntMap(frames.length * 4 / 3 + 1);
+	}
+	/**
+	 * Adds a resident page to the page table. A page missing from the table would be read again into a second frame
+	 * and its changes lost, so a full table is an error rather than something to skip.
+	 * @param page = The page number.
+	 * @param f = The frame holding it.
+	 */
+	private void mapPage(int page, int f) {
+		if (!pageTable.insert(page, f)) {
+			throw new IllegalStateException("Buffer pool page table is full, cannot map page " + page);
+		}
+	}
+	/**
+	 * Replaces the page table with a new one holding only the frames in use.
+	 */
+	private void rebuildPageTable() {
+		pageTable = newPageTable();
+		for (int f = 0; f < frames.length; f++) {
+			if (framePage[f] != -1) {
+				mapPage(framePage[f], f);
+			}
+		}
+		removed = 0;
+	}
+	/**
+	 * Writes a frame back to its page.
+	 * @param f = The frame.
+	 * @throws IOException if the page cannot be written.
+	 */
+	private void write(int f) throws IOException {
+		ByteBuffer buffer = frames[f];
+		buffer.clear();
+		long at = (long) framePage[f] * pageBytes;
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, at + buffer.position());
+		}
+		dirty[f] = false;
+		writes++;
+	}
+	/**
+	 * Writes every dirty frame back to the file. The frames stay in the pool.
+	 * @throws IOException if a page cannot be written.
+	 */
+	void flush() throws IOException {
+		for (int f = 0; f < frames.length; f++) {
+			if (framePage[f] != -1 && dirty[f]) {
+				write(f);
+			}
+		}
+	}
+	/**
+	 * The number of pins served from a frame without reading the file.
+	 * @return The page hits.
+	 */
+	long getHits() {
+		return hits;
+	}
+	/**
+	 * The number of pages read from the file.
+	 * @return The page reads.
+	 */
+	long getReads() {
+		return reads;
+	}
+	/**
+	 * The number of pages written to the file.
+	 * @return The page writes.
+	 */
+	long getWrites() {
+		return writes;
+	}
+	/**
+	 * The number of frames in the pool.
+	 * @return The page budget.
+	 */
+	int capacity() {
+		return frames.length;
+	}
+}
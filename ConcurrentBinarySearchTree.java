@@ -0,0 +1,211 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * A thread-safe ordered set of ints, built as an external binary search tree: every value is in a leaf, and internal
+ * nodes only route, with smaller values on the left and equal and larger values on the right. Each insert and delete
+ * changes a single child reference, so a fetch walks the tree with no lock at all and always sees a valid tree.
+ * An insert locks only the parent of the leaf it replaces, and a delete locks only the grandparent and parent of the
+ * leaf it removes, so writers in different parts of the tree don't wait for each other. After taking its locks a
+ * writer checks that the nodes are still linked where it found them, and searches again if they are not.
+ * Locks are always taken from the top of the tree down, so writers cannot deadlock.
+ * Unlike BinarySearchTree, each value is stored at most once.
+ *
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class ConcurrentBinarySearchTree {
+	// Routing keys above every int, so the real values always go left of the root and its first leaf.
+	private static final long INFINITY_1 = Long.MAX_VALUE - 1;
+	private static final long INFINITY_2 = Long.MAX_VALUE;
+	
+	// The root, an internal node that is never removed.
+	private final Node root;
+	
+	// The number of values in the tree.
+	private final AtomicInteger size = new AtomicInteger();
+	
+	/*
+	 * A node of the tree. A leaf holds a value, an internal node a routing key and exactly two children. Writers
+	 * synchronize on the nodes they change. A node that has been unlinked is marked removed and never changes again.
+	 */
+	private static final class Node {
+		private final long key;
+		private final boolean leaf;
+		private volatile Node left;
+		private volatile Node right;
+		private volatile boolean removed;
+	
+		private Node(long key) {
+			this.key = key;
+			this.leaf = true;
+		}
+		private Node(long key, Node left, Node right) {
+			this.key = key;
+			this.leaf = false;
+			this.left = left;
+			this.right = right;
+		}
+		/**
+		 * The child on the side a key routes to.
+		 */
+		private Node child(long k) {
+			return k < key ? left : right;
+		}
+		/**
+		 * Replaces the child on the side a key routes to.
+		 */
+		private void setChild(long k, Node node) {
+			if (k < key) {
+				left = node;
+			}
+			else {
+				right = node;
+			}
+		}
+	}
+	
+	/**
+	 * Constructs a new empty tree.
+	 */
+	public ConcurrentBinarySearchTree() {
+		root = new Node(INFINITY_2, new Node(INFINITY_1), new Node(INFINITY_2));
+	}
+	/**
+	 * A method which fetches a value from the tree. Takes no lock.
+	 * @param target The value we are trying to fetch
+	 * @return The value if it is in the tree, null otherwise.
+	 */
+	public Integer fetch(int target) {
+		Node node = root;
+		while (!node.leaf) {
+			node = node.child(target);
+		}
+		return node.key == target ? Integer.valueOf(target) : null;
+	}
+	/**
+	 * Tests whether a value is in the tree. Takes no lock.
+	 * @param target The value we are looking for.
+	 * @return True if the value is in the tree.
+	 */
+	public boolean contains(int target) {
+		return fetch(target) != null;
+	}
+	/**
+	 * A method which inserts a value into the tree. The leaf where the value belongs is replaced by an internal node
+	 * whose two leaves are the old leaf and the new value.
+	 * @param value The value we are going to insert
+	 * @return True if the value was inserted, false if it was already in the tree.
+	 */
+	public boolean insert(int value) {
+		while (true) {
+			// Find the leaf where the value belongs and its parent.
+			Node parent = root;
+			Node leaf = parent.child(value);
+			while (!leaf.leaf) {
+				parent = leaf;
+				leaf = leaf.child(value);
+			}
+			if (leaf.key == value) {
+				return false;
+			}
+			synchronized (parent) {
+				// Another writer got here first, search again.
+				if (parent.removed || parent.child(value) != leaf) {
+					continue;
+				}
+				Node added = new Node(value);
+				Node internal = value < leaf.key ? new Node(leaf.key, added, leaf) : new Node(value, leaf, added);
+				parent.setChild(value, internal);
+			}
+			size.incrementAndGet();
+			return true;
+		}
+	}
+	/**
+	 * A method which deletes a value from the tree. The value's leaf and its parent are unlinked together, and the
+	 * leaf's sibling takes the parent's place under the grandparent.
+	 * @param target The value we are trying to delete
+	 * @return true if we deleted the value, false otherwise.
+	 */
+	public boolean delete(int target) {
+		while (true) {
+			// Find the value's leaf, its parent and its grandparent.
+			Node grandparent = null;
+			Node parent = root;
+			Node leaf = parent.child(target);
+			while (!leaf.leaf) {
+				grandparent = parent;
+				parent = leaf;
+				leaf = leaf.child(target);
+			}
+			// A real value's leaf is always at least two levels below the root, so grandparent is set.
+			if (leaf.key != target) {
+				return false;
+			}
+			synchronized (grandparent) {
+				synchronized (parent) {
+					// Another writer got here first, search again.
+					if (grandparent.removed || parent.removed || grandparent.child(target) != parent
+							|| parent.child(target) != leaf) {
+						continue;
+					}
+					Node sibling = parent.left == leaf ? parent.right : parent.left;
+					grandparent.setChild(target, sibling);
+					parent.removed = true;
+					leaf.removed = true;
+				}
+			}
+			size.decrementAndGet();
+			return true;
+		}
+	}
+	/**
+	 * A method to update a value. This deletes the old value and inserts the new one, as two separate steps that other
+	 * threads can observe in between.
+	 * @param target The value we wish to update.
+	 * @param newValue The value we wish to replace it with.
+	 * @return True if we deleted the old value and the new one is in the tree, false otherwise.
+	 */
+	public boolean update(int target, int newValue) {
+		if (!delete(target)) {
+			return false;
+		}
+		insert(newValue);
+		return true;
+	}
+	/**
+	 * The number of values in the tree. Exact when no writer is running.
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size.get();
+	}
+	/**
+	 * Visits the values in ascending order without locking, using an explicit stack. Concurrent writers are not
+	 * blocked: every value present for the whole visit is visited once, values inserted or deleted meanwhile may or
+	 * may not be.
+	 * @param visitor The visitor each value is passed to.
+	 */
+	public void traverse(IntConsumer visitor) {
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node node = stack.pop();
+			if (node.leaf) {
+				// Skip the two routing leaves.
+				if (node.key < INFINITY_1) {
+					visitor.accept((int) node.key);
+				}
+			}
+			else {
+				// Read each child once so the node can't change between the two reads.
+				Node right = node.right;
+				Node left = node.left;
+				stack.push(right);
+				stack.push(left);
+			}
+		}
+	}
+}
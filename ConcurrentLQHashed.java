@@ -0,0 +1,324 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread-safe version of LQHashed that splits the structure into independently locked segments. Each segment has its own
+ * storage area, number of nodes and 4k + 3 prime N, and uses the same Linear Quotient collision algorithm as LQHashed.
+ * Inserts and deletes lock only the segment the key belongs to. Fetches take no lock at all: locations are read with
+ * volatile semantics through an AtomicReferenceArray, and a segment that grows publishes its new storage area through a volatile field.
+ * Deleted nodes are counted per segment. Once the nodes and deleted nodes of a segment fill it to loading factor, the
+ * segment is rebuilt under its lock into a storage area sized for twice its nodes, which leaves the deleted nodes behind.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class ConcurrentLQHashed {
+	// A default 4k + 3 prime.
+	private static final int DEFAULT_QUOTIENT = 9967;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private static final double LOADING_FACTOR = 0.75;
+	
+	// Dummy node. This indicates that there was once a node, but now it has been deleted.
+	private static final String DELETED = new String("");
+	
+	// The segments. The number of segments is a power of two so a segment can be picked with a mask.
+	private Segment[] segments;
+	
+	// segments.length - 1.
+	private int segmentMask;
+	
+	// The pre-processing algorithm that converts keys into pseudo-keys.
+	private HashStrategy hashStrategy;
+	
+	/*
+	 * A storage area. It is never resized in place: a segment that grows builds a new one and publishes it,
+	 * so a reader that has a reference to a storage area always sees a consistent array and N.
+	 */
+	private static class Table {
+		// The nodes, read and written with volatile semantics.
+		private final AtomicReferenceArray<String> data;
+		// The pseudo-key of the node at each location. Written before the node, so a reader that sees the node sees its pseudo-key.
+		private final int[] pseudoKeys;
+		// The number of locations.
+		private final int n;
+		
+		private Table(int n) {
+			this.n = n;
+			data = new AtomicReferenceArray<String>(n);
+			pseudoKeys = new int[n];
+		}
+	}
+	
+	/*
+	 * One independently locked part of the structure. Writers synchronize on the segment.
+	 */
+	private static class Segment {
+		// The current storage area of the segment.
+		private volatile Table table;
+		// Number of nodes currently stored in the segment.
+		private volatile int size;
+		// Number of deleted nodes in the current storage area. Only read and written with the segment locked.
+		private int tombstones;
+		
+		private Segment(int n) {
+			table = new Table(n);
+			size = 0;
+		}
+	}
+	
+	/**
+	 * Constructs a ConcurrentLQHashed that can hold length nodes spread over 16 segments.
+	 * @param length= The number of nodes to be stored before the segments have to grow.
+	 */
+	public ConcurrentLQHashed(int length) {
+		this(length, 16, new FoldShiftHash());
+	}
+	/**
+	 * Constructs a ConcurrentLQHashed that can hold length nodes.
+	 * @param length= The number of nodes to be stored before the segments have to grow.
+	 * @param concurrency= The number of segments, rounded up to a power of two. Roughly the number of threads expected to write at once.
+	 * @param hashStrategy= The pre-processing algorithm that converts keys into pseudo-keys.
+	 */
+	public ConcurrentLQHashed(int length, int concurrency, HashStrategy hashStrategy) {
+		this.hashStrategy = hashStrategy;
+		// Round the number of segments up to a power of two.
+		int count = 1;
+		while (count < concurrency) {
+			count = count << 1;
+		}
+		segments = new Segment[count];
+		segmentMask = count - 1;
+		int pct = (int)((1.0 / LOADING_FACTOR - 1) * 100.0);
+		// Each segment gets an equal share of the nodes.
+		int perSegment = Math.max(length / count, 1);
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(LQHashed.fourKPlus3(perSegment, pct));
+		}
+	}
+	/**
+	 * Inserts newListing into the structure, rebuilding its segment first if the nodes and deleted nodes of the segment
+	 * fill it to loading factor.
+	 * @param newListing = The new listing to insert into the structure.
+	 * @return True if the listing was inserted, false otherwise.
+	 */
+	public boolean insert(String newListing) {
+		int pk = hashStrategy.hash(newListing);
+		Segment segment = segmentFor(pk);
+		synchronized (segment) {
+			// If the segment is full to loading factor, counting its deleted nodes, rebuild it.
+			if ((((double) (segment.size + segment.tombstones)) / segment.table.n) >= LOADING_FACTOR) {
+				rebuild(segment);
+			}
+			Table table = segment.table;
+			int ip = findFree(table, pk);
+			if (ip == -1) {
+				return false;
+			}
+			// If we are reusing the location of a deleted node, there is one fewer deleted node.
+			if (table.data.get(ip) == DELETED) {
+				segment.tombstones--;
+			}
+			// Write the pseudo-key first so readers that see the node also see its pseudo-key.
+			table.pseudoKeys[ip] = pk;
+			table.data.set(ip, newListing);
+			segment.size++;
+			return true;
+		}
+	}
+	/**
+	 * Retrieves the node with key-field given by targetKey without taking a lock.
+	 * @param targetKey = The key-field of the node we wish to retrieve.
+	 * @return The node whose key-field matches the targetKey, null if we couldn't find it.
+	 */
+	public String fetch(String targetKey) {
+		int pk = hashStrategy.hash(targetKey);
+		// Read the storage area once, so the whole probe uses the same array and N.
+		Table table = segmentFor(pk).table;
+		int n = table.n;
+		int pass = 0;
+		int q = pk / n;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % n;
+		String listing;
+		if (q % n == 0) {
+			offset = DEFAULT_QUOTIENT;
+		}
+		while (pass < n) {
+			// Read each location once, so the node we return is the one we compared even if a writer changes it after.
+			listing = table.data.get(ip);
+			if (listing == null) {
+				break;
+			}
+			if (listing != DELETED && table.pseudoKeys[ip] == pk && listing.equals(targetKey)) {
+				return listing;
+			}
+			ip = (ip + offset) % n;
+			pass++;
+		}
+		return null;
+	}
+	/**
+	 * Deletes the target item and inserts a new item to replace it.
+	 * @param targetKey = The listing we wish to update
+	 * @param newListing = The listing to replace the targeted listing with
+	 * @return True if we deleted the old listing and inserted the new one, false otherwise.
+	 */
+	public boolean update(String targetKey, String newListing) {
+		if (delete(targetKey) == false) {
+			return false;
+		}
+		return insert(newListing);
+	}
+	/**
+	 * Deletes the node given by the targetKey from the structure.
+	 * @param targetKey = The key of the node we wish to delete
+	 * @return True if we deleted the node, false otherwise.
+	 */
+	public boolean delete(String targetKey) {
+		int pk = hashStrategy.hash(targetKey);
+		Segment segment = segmentFor(pk);
+		synchronized (segment) {
+			Table table = segment.table;
+			int ip = findKey(table, pk, targetKey);
+			if (ip == -1) {
+				return false;
+			}
+			// Leave a deleted node behind so probes for other nodes still get past this location.
+			table.data.set(ip, DELETED);
+			segment.size--;
+			segment.tombstones++;
+			return true;
+		}
+	}
+	/**
+	 * The number of nodes stored in every segment. Only exact when no other thread is writing.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		int total = 0;
+		for (int i = 0; i < segments.length; i++) {
+			total += segments[i].size;
+		}
+		return total;
+	}
+	/**
+	 * Picks the segment a pseudo-key belongs to. The pseudo-key is mixed first so the segment does not
+	 * depend on the same bits as the home location inside the segment.
+	 * @param pk = The pseudo-key.
+	 * @return The segment.
+	 */
+	private Segment segmentFor(int pk) {
+		return segments[LQHashedMap.mix(pk) & segmentMask];
+	}
+	/**
+	 * Probes a storage area for the location of the node whose key matches targetKey. Called with the segment locked.
+	 * @param table = The storage area to probe.
+	 * @param pk = The pseudo-key of targetKey.
+	 * @param targetKey = The key of the node we are looking for.
+	 * @return The location of the node, -1 if it is not in the storage area.
+	 */
+	private static int findKey(Table table, int pk, String targetKey) {
+		int n = table.n;
+		int pass = 0;
+		int q = pk / n;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % n;
+		String listing;
+		if (q % n == 0) {
+			offset = DEFAULT_QUOTIENT;
+		}
+		while (pass < n) {
+			// Read the node before its pseudo-key.
+			listing = table.data.get(ip);
+			if (listing == null) {
+				break;
+			}
+			if (listing != DELETED && table.pseudoKeys[ip] == pk && listing.equals(targetKey)) {
+				return ip;
+			}
+			ip = (ip + offset) % n;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Probes a storage area for the first location that is empty or holds a deleted node. Called with the segment locked.
+	 * @param table = The storage area to probe.
+	 * @param pk = The pseudo-key of the node we are going to store.
+	 * @return The free location, -1 if every location is taken.
+	 */
+	private static int findFree(Table table, int pk) {
+		int n = table.n;
+		int pass = 0;
+		int q = pk / n;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % n;
+		String listing;
+		if (q % n == 0) {
+			offset = DEFAULT_QUOTIENT;
+		}
+		while (pass < n) {
+			listing = table.data.get(ip);
+			if (listing == null || listing == DELETED) {
+				return ip;
+			}
+			ip = (ip + offset) % n;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Moves every node of a segment into a storage area sized for twice its nodes, then publishes the new storage area.
+	 * The deleted nodes are left behind, so a segment that filled up with them is purged, and shrinks if most of its
+	 * locations held them. Called with the segment locked. Readers keep probing the old storage area until the new one
+	 * is published.
+	 * @param segment = The segment to rebuild.
+	 */
+	private static void rebuild(Segment segment) {
+		Table old = segment.table;
+		int pct = (int)((1.0 / LOADING_FACTOR - 1) * 100.0);
+		Table table = new Table(LQHashed.growthSize(Math.max(segment.size, 1) * 2, pct));
+		String listing;
+		int ip;
+		for (int i = 0; i < old.n; i++) {
+			listing = old.data.get(i);
+			if (listing != null && listing != DELETED) {
+				ip = findFree(table, old.pseudoKeys[i]);
+				table.pseudoKeys[ip] = old.pseudoKeys[i];
+				table.data.set(ip, listing);
+			}
+		}
+		segment.table = table;
+		segment.tombstones = 0;
+	}
+	/**
+	 * The number of deleted nodes in every segment. Only exact when no other thread is writing.
+	 * @return The number of deleted nodes.
+	 */
+	public int getTombstones() {
+		int total = 0;
+		for (int i = 0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				total += segments[i].tombstones;
+			}
+		}
+		return total;
+	}
+	/**
+	 * Outputs the nodes in the structure to the console.
+	 */
+	public void output() {
+		for (int s = 0; s < segments.length; s++) {
+			Table table = segments[s].table;
+			for (int i = 0; i < table.n; i++) {
+				String listing = table.data.get(i);
+				if (listing != null && listing != DELETED) {
+					System.out.println(listing);
+				}
+			}
+		}
+	}
+}
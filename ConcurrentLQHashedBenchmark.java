@@ -0,0 +1,214 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of ConcurrentLQHashed against a LQHashed behind one global lock, on a read-heavy mix
+ * (95% fetches, 5% inserts and deletes) and a write-heavy mix (50% fetches, 50% inserts and deletes), for 1, 2, 4 ...
+ * threads up to the number of processors. Each thread picks random keys from a key space that starts half inserted, so
+ * half of the fetches miss and the writes keep churning the tables. After the runs, the time of a fetch miss on a fresh
+ * ConcurrentLQHashed is compared with one that has been through the churn.
+ * Run with: java ConcurrentLQHashedBenchmark [keySpace] [secondsPerRun] [maxThreads]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class ConcurrentLQHashedBenchmark {
+	// The number of absent keys fetched to time a miss.
+	private static final int MISSES = 100000;
+
+	/*
+	 * The operations a run needs, so both structures can be driven by the same loop.
+	 */
+	private interface Table {
+		String fetch(String key);
+		boolean insert(String key);
+		boolean delete(String key);
+	}
+
+	/**
+	 * Runs every mix on both structures and outputs the operations per second of each run.
+	 * @param args = The number of different keys, the length of each run in seconds, and the most threads to use.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int keySpace = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		String[] keys = new String[keySpace];
+		for (int i = 0; i < keySpace; i++) {
+			keys[i] = "listing-" + i;
+		}
+		int[] readPercents = { 95, 50 };
+		for (int r = 0; r < readPercents.length; r++) {
+			// Double the threads each time, finishing with exactly maxThreads.
+			for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+				double locked = run(lockedTable(keySpace), keys, threads, readPercents[r], seconds);
+				double striped = run(concurrentTable(keySpace), keys, threads, readPercents[r], seconds);
+				System.out.println(readPercents[r] + "/" + (100 - readPercents[r]) + " threads=" + threads
+						+ " lockedLQHashed=" + String.format("%.0f", locked) + " ops/s"
+						+ " ConcurrentLQHashed=" + String.format("%.0f", striped) + " ops/s"
+						+ " speedup=" + String.format("%.2f", striped / locked));
+				if (threads >= maxThreads) {
+					break;
+				}
+			}
+		}
+		missesAfterChurn(keys, seconds);
+	}
+	/**
+	 * A LQHashed that grows, with every call made under one lock.
+	 * @param keySpace = The number of different keys.
+	 * @return The table.
+	 */
+	private static Table lockedTable(int keySpace) {
+		final LQHashed table = new LQHashed(keySpace / 2, true);
+		return new Table() {
+			public synchronized String fetch(String key) {
+				return table.fetch(key);
+			}
+			public synchronized boolean insert(String key) {
+				return table.insert(key);
+			}
+			public synchronized boolean delete(String key) {
+				return table.delete(key);
+			}
+		};
+	}
+	/**
+	 * A ConcurrentLQHashed with 64 segments.
+	 * @param keySpace = The number of different keys.
+	 * @return The table.
+	 */
+	private static Table concurrentTable(int keySpace) {
+		final ConcurrentLQHashed table = new ConcurrentLQHashed(keySpace / 2, 64, new FoldShiftHash());
+		return new Table() {
+			public String fetch(String key) {
+				return table.fetch(key);
+			}
+			public boolean insert(String key) {
+				return table.insert(key);
+			}
+			public boolean delete(String key) {
+				return table.delete(key);
+			}
+		};
+	}
+	/**
+	 * Inserts every other key, then runs threads doing the mix until the time is up.
+	 * @param table = The structure to drive.
+	 * @param keys = The key space.
+	 * @param threads = The number of threads.
+	 * @param readPercent = The percentage of operations that are fetches. The rest are half inserts, half deletes.
+	 * @param seconds = How long to run.
+	 * @return The operations per second of all threads together.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	private static double run(final Table table, final String[] keys, int threads, final int readPercent, double seconds)
+			throws InterruptedException {
+		for (int i = 0; i < keys.length; i += 2) {
+			table.insert(keys[i]);
+		}
+		final AtomicBoolean stop = new AtomicBoolean();
+		final LongAdder operations = new LongAdder();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final long seed = t;
+			workers[t] = new Thread() {
+				public void run() {
+					Random random = new Random(seed);
+					long done = 0;
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					while (!stop.get()) {
+						// Check the clock only every 256 operations.
+						for (int i = 0; i < 256; i++) {
+							String key = keys[random.nextInt(keys.length)];
+							int roll = random.nextInt(100);
+							if (roll < readPercent) {
+								table.fetch(key);
+							}
+							else if ((roll & 1) == 0) {
+								// Only insert keys that are absent, so the tables hold each key at most once.
+								if (table.fetch(key) == null) {
+									table.insert(key);
+								}
+							}
+							else {
+								table.delete(key);
+							}
+						}
+						done += 256;
+					}
+					operations.add(done);
+				}
+			};
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep((long) (seconds * 1000));
+		stop.set(true);
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+		}
+		return operations.sum() / ((System.nanoTime() - begin) / 1e9);
+	}
+	/**
+	 * Times fetches of absent keys on a fresh ConcurrentLQHashed, then again after a write-heavy churn, to show that
+	 * deleted nodes are purged rather than left for misses to probe past.
+	 * @param keys = The key space.
+	 * @param seconds = How long to churn.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	private static void missesAfterChurn(String[] keys, double seconds) throws InterruptedException {
+		final ConcurrentLQHashed table = new ConcurrentLQHashed(keys.length / 2, 64, new FoldShiftHash());
+		Table wrapper = new Table() {
+			public String fetch(String key) {
+				return table.fetch(key);
+			}
+			public boolean insert(String key) {
+				return table.insert(key);
+			}
+			public boolean delete(String key) {
+				return table.delete(key);
+			}
+		};
+		String[] absent = new String[MISSES];
+		for (int i = 0; i < MISSES; i++) {
+			absent[i] = "absent-" + i;
+		}
+		for (int i = 0; i < keys.length; i += 2) {
+			table.insert(keys[i]);
+		}
+		double fresh = missNanos(table, absent);
+		run(wrapper, keys, 1, 0, seconds);
+		double churned = missNanos(table, absent);
+		System.out.println("miss: fresh=" + String.format("%.0f", fresh) + " ns, after churn=" + String.format("%.0f", churned)
+				+ " ns, size=" + table.size() + " tombstones=" + table.getTombstones());
+	}
+	/**
+	 * The average time of a fetch for a key that is not stored, the best of three passes.
+	 * @param table = The structure.
+	 * @param absent = Keys that are not stored.
+	 * @return The nanoseconds per fetch.
+	 */
+	private static double missNanos(ConcurrentLQHashed table, String[] absent) {
+		double best = Double.MAX_VALUE;
+		for (int pass = 0; pass < 3; pass++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < absent.length; i++) {
+				if (table.fetch(absent[i]) != null) {
+					throw new IllegalStateException("Found a key that was never inserted: " + absent[i]);
+				}
+			}
+			best = Math.min(best, ((double) (System.nanoTime() - start)) / absent.length);
+		}
+		return best;
+	}
+}
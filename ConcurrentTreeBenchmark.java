@@ -0,0 +1,187 @@
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the throughput of ConcurrentBinarySearchTree against a ConcurrentSkipListSet of Integers and a
+ * BinarySearchTree behind one global lock, on a read-heavy mix (90% fetches, 10% inserts and deletes) and a write-heavy
+ * mix (50% fetches, 50% inserts and deletes), for 1, 2, 4 ... threads up to the number of processors. Each thread picks
+ * random values from a key space that starts half inserted in random order, so half of the fetches miss and the writes
+ * keep churning the sets. Every structure is used as a set: a value is only inserted when it is absent.
+ * Run with: java ConcurrentTreeBenchmark [keySpace] [secondsPerRun] [maxThreads]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class ConcurrentTreeBenchmark {
+
+	/*
+	 * The operations a run needs, so every structure can be driven by the same loop.
+	 */
+	private interface IntSet {
+		boolean contains(int value);
+		boolean insert(int value);
+		boolean delete(int value);
+	}
+
+	/**
+	 * Runs every mix on every structure and outputs the operations per second of each run.
+	 * @param args = The number of different values, the length of each run in seconds, and the most threads to use.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int keySpace = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		// The values 0 to keySpace - 1 in random order, so the unbalanced BinarySearchTree stays shallow.
+		int[] values = new int[keySpace];
+		Random random = new Random(42);
+		for (int i = 0; i < keySpace; i++) {
+			values[i] = i;
+		}
+		for (int i = keySpace - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = values[i];
+			values[i] = values[j];
+			values[j] = swap;
+		}
+		int[] readPercents = { 90, 50 };
+		for (int r = 0; r < readPercents.length; r++) {
+			// Double the threads each time, finishing with exactly maxThreads.
+			for (int threads = 1; ; threads = Math.min(threads * 2, maxThreads)) {
+				double locked = run(lockedTree(), values, threads, readPercents[r], seconds);
+				double skipList = run(skipList(), values, threads, readPercents[r], seconds);
+				double concurrent = run(concurrentTree(), values, threads, readPercents[r], seconds);
+				System.out.println(readPercents[r] + "/" + (100 - readPercents[r]) + " threads=" + threads
+						+ " lockedBinarySearchTree=" + String.format("%.0f", locked) + " ops/s"
+						+ " ConcurrentSkipListSet=" + String.format("%.0f", skipList) + " ops/s"
+						+ " ConcurrentBinarySearchTree=" + String.format("%.0f", concurrent) + " ops/s");
+				if (threads >= maxThreads) {
+					break;
+				}
+			}
+		}
+	}
+	/**
+	 * A BinarySearchTree with every call made under one lock. Insert checks for the value first, under the same lock,
+	 * so the tree holds each value at most once like the other two.
+	 * @return The set.
+	 */
+	private static IntSet lockedTree() {
+		final BinarySearchTree tree = new BinarySearchTree();
+		return new IntSet() {
+			public synchronized boolean contains(int value) {
+				return tree.fetch(value) != null;
+			}
+			public synchronized boolean insert(int value) {
+				if (tree.fetch(value) != null) {
+					return false;
+				}
+				tree.insert(value);
+				return true;
+			}
+			public synchronized boolean delete(int value) {
+				return tree.delete(value);
+			}
+		};
+	}
+	/**
+	 * A ConcurrentSkipListSet of Integers.
+	 * @return The set.
+	 */
+	private static IntSet skipList() {
+		final ConcurrentSkipListSet<Integer> set = new ConcurrentSkipListSet<Integer>();
+		return new IntSet() {
+			public boolean contains(int value) {
+				return set.contains(value);
+			}
+			public boolean insert(int value) {
+				return set.add(value);
+			}
+			public boolean delete(int value) {
+				return set.remove(value);
+			}
+		};
+	}
+	/**
+	 * A ConcurrentBinarySearchTree.
+	 * @return The set.
+	 */
+	private static IntSet concurrentTree() {
+		final ConcurrentBinarySearchTree tree = new ConcurrentBinarySearchTree();
+		return new IntSet() {
+			public boolean contains(int value) {
+				return tree.fetch(value) != null;
+			}
+			public boolean insert(int value) {
+				return tree.insert(value);
+			}
+			public boolean delete(int value) {
+				return tree.delete(value);
+			}
+		};
+	}
+	/**
+	 * Inserts the first half of the values, then runs threads doing the mix until the time is up.
+	 * @param set = The structure to drive.
+	 * @param values = The key space, in random order.
+	 * @param threads = The number of threads.
+	 * @param readPercent = The percentage of operations that are fetches. The rest are half inserts, half deletes.
+	 * @param seconds = How long to run.
+	 * @return The operations per second of all threads together.
+	 * @throws InterruptedException if interrupted while waiting for the threads.
+	 */
+	private static double run(final IntSet set, final int[] values, int threads, final int readPercent, double seconds)
+			throws InterruptedException {
+		for (int i = 0; i < values.length / 2; i++) {
+			set.insert(values[i]);
+		}
+		final AtomicBoolean stop = new AtomicBoolean();
+		final LongAdder operations = new LongAdder();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final long seed = t;
+			workers[t] = new Thread() {
+				public void run() {
+					Random random = new Random(seed);
+					long done = 0;
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					while (!stop.get()) {
+						// Check the clock only every 256 operations.
+						for (int i = 0; i < 256; i++) {
+							int value = values[random.nextInt(values.length)];
+							int roll = random.nextInt(100);
+							if (roll < readPercent) {
+								set.contains(value);
+							}
+							else if ((roll & 1) == 0) {
+								set.insert(value);
+							}
+							else {
+								set.delete(value);
+							}
+						}
+						done += 256;
+					}
+					operations.add(done);
+				}
+			};
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		Thread.sleep((long) (seconds * 1000));
+		stop.set(true);
+		for (int t = 0; t < threads; t++) {
+			workers[t].join();
+		}
+		return operations.sum() / ((System.nanoTime() - begin) / 1e9);
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * The original fold-shifting pre-processing algorithm of LQHashed. Every group of four characters is shifted
+ * together and the groups are added up. Kept so existing tables hash exactly as before.
+ * Anagrams of whole groups and shifted strings fold to the same pseudo-key, so other strategies may spread keys better.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class FoldShiftHash implements HashStrategy {
+	/**
+	 * Performs a fold-shifting pre-processing algorithm on a string into a 32 bit integer pseudo-key.
+	 * This is both whitespace and case sensitive. Sometimes different keys WILL produce the same pseudo-key, so we will need to deal with collisions.
+	 * @param key = the key we wish to convert into a pseudo-key.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	public int hash(String key) {
+		// Our pseudo-key is initialized to the non-negative integer 0.
+		int pseudoKey = 0;
+		int charNum = 1;
+		// character we are looking at.
+		int cn = 0;
+		int length = key.length();
+		// The grouping that we will fold about.
+		int grouping = 0;
+		// While there are still more characters in the key
+		while (cn < length) {
+			// Shift left 8. This advances grouping 4 characters.
+			grouping = grouping << 8;
+			// Read the character in place rather than copying the key into a character array.
+			grouping = grouping + key.charAt(cn);
+			cn = cn + 1;
+			// If four characters have been processed or we have processed all the characters.
+			if (charNum == 4 || cn == length) {
+				// Add the grouping to the pseudo key.
+				pseudoKey = pseudoKey + grouping;
+				// Reset n and the grouping.
+				charNum = 0;
+				grouping = 0;
+			}
+			charNum++;
+		}
+		// Return the absolute value of the calculated pseudo-key. Math.abs leaves Integer.MIN_VALUE negative, so mask it to 0.
+		return Math.abs(pseudoKey) & Integer.MAX_VALUE;
+	}
+	/**
+	 * The name of the algorithm.
+	 * @return "fold-shift"
+	 */
+	public String name() {
+		return "fold-shift";
+	}
+}
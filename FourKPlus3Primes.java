@@ -0,0 +1,154 @@
+/**
+ * A source of 4k + 3 prime table sizes for LQHashed and its variants, replacing trial division.
+ * The ladder is a precomputed list of 4k + 3 primes about 7% apart, from 3 up to 2^31 - 1 (itself a 4k + 3 prime),
+ * so a growing table can find its next size with a binary search. Exact sizes are found by testing 4k + 3 candidates
+ * with a Miller-Rabin test that is deterministic for every int.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public final class FourKPlus3Primes {
+	// 4k + 3 primes, each the smallest 4k + 3 prime at least 7% larger than the one before it.
+	private static final int[] LADDER = {
+		3, 7, 11, 19, 23, 31, 43, 47,
+		59, 67, 79, 103, 127, 139, 151, 163,
+		179, 199, 223, 239, 263, 283, 307, 331,
+		359, 419, 463, 499, 547, 587, 631, 683,
+		739, 811, 883, 947, 1019, 1091, 1171, 1259,
+		1367, 1471, 1579, 1699, 1823, 1951, 2099, 2251,
+		2411, 2591, 2791, 2999, 3251, 3491, 3739, 4003,
+		4327, 4639, 4967, 5323, 5711, 6131, 6563, 7027,
+		7523, 8059, 8627, 9239, 9887, 10607, 11351, 12163,
+		13043, 13963, 14947, 16007, 17159, 18367, 19687, 21067,
+		22543, 24151, 25847, 27691, 29663, 31751, 34019, 36451,
+		39019, 41759, 44683, 47819, 51199, 54787, 58631, 62743,
+		67139, 71843, 76883, 82267, 88079, 94291, 100907, 107971,
+		115547, 123667, 132331, 141619, 151579, 162251, 173647, 185819,
+		198827, 212791, 227699, 243643, 260723, 279007, 298559, 319483,
+		341851, 365791, 391399, 418799, 448139, 479543, 513131, 549071,
+		587519, 628651, 672667, 719779, 770167, 824099, 881899, 943651,
+		1009727, 1080419, 1156079, 1237031, 1323659, 1416479, 1515643, 1621751,
+		1735291, 1856819, 1986823, 2125919, 2274739, 2433979, 2604391, 2786699,
+		2981779, 3190519, 3413911, 3652903, 3908659, 4182271, 4475047, 4788307,
+		5123491, 5482163, 5865919, 6276563, 6715963, 7186147, 7689191, 8227451,
+		8803387, 9419639, 10079023, 10784563, 11539499, 12347267, 13211579, 14136391,
+		15125939, 16184771, 17317711, 18529967, 19827103, 21215027, 22700099, 24289123,
+		25989391, 27808663, 29755279, 31838159, 34066843, 36451523, 39003131, 41733359,
+		44654711, 47780563, 51125279, 54704087, 58533379, 62630719, 67014907, 71705971,
+		76725419, 82096211, 87842983, 93991999, 100571447, 107611487, 115144307, 123204439,
+		131828759, 141056819, 150930827, 161496043, 172800787, 184896883, 197839739, 211688647,
+		226506871, 242362363, 259327771, 277480727, 296904383, 317687731, 339925951, 363720779,
+		389181283, 416423999, 445573699, 476763871, 510137371, 545847007, 584056327, 624940279,
+		668686127, 715494259, 765578887, 819169459, 876511331, 937867219, 1003517971, 1073764231,
+		1148927803, 1229352767, 1315407523, 1407486071, 1506010111, 1611430823, 1724231051, 1844927243,
+		1974072167, 2112257267, 2147483647
+	};
+	
+	private FourKPlus3Primes() {
+	}
+	/**
+	 * Finds the smallest rung of the ladder that is at least n.
+	 * @param n = The smallest size wanted.
+	 * @return A 4k + 3 prime at least n and at most about 7% larger, or 2^31 - 1 if n is larger than every rung.
+	 */
+	public static int ladder(int n) {
+		int low = 0;
+		int high = LADDER.length - 1;
+		int middle;
+		// Binary search for the first rung that is at least n.
+		while (low < high) {
+			middle = (low + high) >>> 1;
+			if (LADDER[middle] < n) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return LADDER[low];
+	}
+	/**
+	 * Finds the smallest 4k + 3 prime that is at least n.
+	 * @param n = The smallest size wanted.
+	 * @return The smallest 4k + 3 prime at least n, or 2^31 - 1 if n is larger than that.
+	 */
+	public static int exact(int n) {
+		if (n <= 3) {
+			return 3;
+		}
+		// Start at the first candidate of the form 4k + 3, then step by 4 so every candidate keeps that form.
+		long candidate = n + ((3 - n % 4 + 4) % 4);
+		while (candidate < Integer.MAX_VALUE) {
+			if (isPrime((int) candidate)) {
+				return (int) candidate;
+			}
+			candidate += 4;
+		}
+		return Integer.MAX_VALUE;
+	}
+	/**
+	 * Tests whether n is prime. Uses the Miller-Rabin test with bases 2, 7 and 61, which has no false answers below 2^32.
+	 * @param n = The number to test.
+	 * @return True if n is prime, false otherwise.
+	 */
+	public static boolean isPrime(int n) {
+		if (n < 2) {
+			return false;
+		}
+		// Small primes, and numbers with a small factor.
+		if (n % 2 == 0 || n % 3 == 0 || n % 5 == 0 || n % 7 == 0) {
+			return n == 2 || n == 3 || n == 5 || n == 7;
+		}
+		if (n < 121) {
+			return true;
+		}
+		return witness(2, n) && witness(7, n) && witness(61, n);
+	}
+	/**
+	 * One round of the Miller-Rabin test.
+	 * @param a = The base.
+	 * @param n = The odd number being tested.
+	 * @return False if a proves n composite, true otherwise.
+	 */
+	private static boolean witness(long a, int n) {
+		if (a % n == 0) {
+			return true;
+		}
+		// Write n - 1 as d * 2^s with d odd.
+		long d = n - 1;
+		int s = 0;
+		while ((d & 1) == 0) {
+			d >>= 1;
+			s++;
+		}
+		long x = powMod(a, d, n);
+		if (x == 1 || x == n - 1) {
+			return true;
+		}
+		for (int r = 1; r < s; r++) {
+			x = x * x % n;
+			if (x == n - 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Computes base^exponent mod m. Every intermediate value is below 2^62, so nothing overflows.
+	 * @param base = The base.
+	 * @param exponent = The exponent.
+	 * @param m = The modulus, below 2^31.
+	 * @return base^exponent mod m.
+	 */
+	private static long powMod(long base, long exponent, long m) {
+		long result = 1;
+		base %= m;
+		while (exponent > 0) {
+			if ((exponent & 1) == 1) {
+				result = result * base % m;
+			}
+			base = base * base % m;
+			exponent >>= 1;
+		}
+		return result;
+	}
+}
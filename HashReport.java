@@ -0,0 +1,106 @@
+import java.util.HashMap;
+
+/**
+ * A report of how well a HashStrategy spreads a particular set of keys in LQHashed. Counts the keys that share a
+ * pseudo-key with another key, and the probe lengths a fetch of each key needs once they are all stored.
+ * Build one report per strategy on a sample of the dataset to choose the strategy for that dataset.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class HashReport {
+	// The name of the strategy the report was made for.
+	private String strategyName;
+	// The number of keys in the sample.
+	private int keys;
+	// The number of different pseudo-keys the sample produced.
+	private int distinctPseudoKeys;
+	// The number of keys whose pseudo-key was already produced by an earlier key.
+	private int collisions;
+	// The total and the longest probe length of a fetch over every key.
+	private long totalProbes;
+	private int maxProbes;
+	
+	/**
+	 * Builds a report by hashing every key with the strategy and storing them all in a LQHashed.
+	 * @param sample = The keys to report on. Duplicate keys are counted as collisions.
+	 * @param hashStrategy = The pre-processing algorithm to report on.
+	 */
+	public HashReport(String[] sample, HashStrategy hashStrategy) {
+		strategyName = hashStrategy.name();
+		keys = sample.length;
+		// Count how many keys produced each pseudo-key.
+		HashMap<Integer, Integer> seen = new HashMap<Integer, Integer>();
+		for (int i = 0; i < sample.length; i++) {
+			int pk = hashStrategy.hash(sample[i]);
+			Integer count = seen.get(pk);
+			if (count == null) {
+				seen.put(pk, 1);
+			}
+			else {
+				seen.put(pk, count + 1);
+				collisions++;
+			}
+		}
+		distinctPseudoKeys = seen.size();
+		// Store every key, then measure the probe length of fetching each of them.
+		LQHashed table = new LQHashed(sample.length, true, hashStrategy);
+		for (int i = 0; i < sample.length; i++) {
+			table.insert(sample[i]);
+		}
+		for (int i = 0; i < sample.length; i++) {
+			int probes = table.probeLength(sample[i]);
+			totalProbes += probes;
+			if (probes > maxProbes) {
+				maxProbes = probes;
+			}
+		}
+	}
+	/**
+	 * Outputs a report for every strategy to the console, one line each.
+	 * @param sample = The keys to report on.
+	 * @param strategies = The pre-processing algorithms to compare.
+	 */
+	public static void compare(String[] sample, HashStrategy... strategies) {
+		for (int i = 0; i < strategies.length; i++) {
+			System.out.println(new HashReport(sample, strategies[i]));
+		}
+	}
+	/**
+	 * The number of keys whose pseudo-key was already produced by an earlier key.
+	 * @return The number of collisions.
+	 */
+	public int getCollisions() {
+		return collisions;
+	}
+	/**
+	 * The number of different pseudo-keys the sample produced.
+	 * @return The number of distinct pseudo-keys.
+	 */
+	public int getDistinctPseudoKeys() {
+		return distinctPseudoKeys;
+	}
+	/**
+	 * The average number of locations a fetch of a key in the sample checks.
+	 * @return The average probe length, 0 if the sample is empty.
+	 */
+	public double getAverageProbeLength() {
+		if (keys == 0) {
+			return 0;
+		}
+		return ((double) totalProbes) / keys;
+	}
+	/**
+	 * The largest number of locations a fetch of a key in the sample checks.
+	 * @return The longest probe length.
+	 */
+	public int getMaxProbeLength() {
+		return maxProbes;
+	}
+	/**
+	 * Outputs the report as a String.
+	 */
+	public String toString() {
+		return strategyName + ": keys=" + keys + " distinct=" + distinctPseudoKeys + " collisions=" + collisions
+				+ " avgProbes=" + String.format("%.3f", getAverageProbeLength()) + " maxProbes=" + maxProbes;
+	}
+}
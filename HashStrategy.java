@@ -0,0 +1,58 @@
+/**
+ * A pre-processing algorithm that converts a string key into a non-negative integer pseudo-key for LQHashed.
+ * Implementations read the characters of the key in place with charAt, so no copy of the key is allocated.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public interface HashStrategy {
+	/**
+	 * Converts a key into a pseudo-key.
+	 * @param key = the key we wish to convert into a pseudo-key.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	int hash(String key);
+	/**
+	 * The name of the algorithm, used in reports and to identify the algorithm a structure was built with.
+	 * @return The name of the algorithm.
+	 */
+	String name();
+	/**
+	 * The seed the algorithm starts from. Structures that record their strategy record this with the name, since the
+	 * same name with a different seed gives different pseudo-keys.
+	 * @return The seed, 0 for algorithms that have none.
+	 */
+	default int seed() {
+		return 0;
+	}
+	/**
+	 * Finds the strategy with the given name and its default seed.
+	 * @param name = The name of the strategy.
+	 * @return A new strategy with that name and a seed of 0.
+	 * @throws IllegalArgumentException if no strategy has that name.
+	 */
+	static HashStrategy forName(String name) {
+		return forName(name, 0);
+	}
+	/**
+	 * Finds the strategy with the given name and seed, for structures that record the strategy they were built with.
+	 * @param name = The name of the strategy.
+	 * @param seed = The seed recorded with the name.
+	 * @return A new strategy with that name and seed.
+	 * @throws IllegalArgumentException if no strategy has that name, or the strategy has no seed and seed is not 0.
+	 */
+	static HashStrategy forName(String name, int seed) {
+		if (name.equals("fold-shift")) {
+			if (seed != 0) {
+				throw new IllegalArgumentException("fold-shift has no seed, got " + seed);
+			}
+			return new FoldShiftHash();
+		}
+		if (name.equals("murmur3")) {
+			return new Murmur3Hash(seed);
+		}
+		if (name.equals("xxhash")) {
+			return new XXHash(seed);
+		}
+		throw new IllegalArgumentException("Unknown hash strategy: " + name);
+	}
+}
@@ -1,5 +1,18 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
- * Fold shifting, coded as stringToInt will be the the preprocessing algorithm. The client will specify the
+ * Fold shifting, coded as FoldShiftHash will be the the default preprocessing algorithm. Another HashStrategy can be
+ * given to the constructor instead. The client will specify the
  * maximum number of nodes to be stored in the structure length. This will be adjusted by the loading factor
  * and sent into the method fourKPlus3 to determine a 4k + 3 prime to use for the size of the primary storage area, N.
  * We will use be using the Linear Quotient Collision algorithm for dealing with collisions. This is largely based off the textbook.
@@ -18,7 +31,7 @@ public class LQHashed {
 	// Max number of nodes to store / Number of storage locations.
 	private double loadingFactor = 0.75;
 	
-	// Maximum number of nodes to be stored in the structure. VERY DIFFERENT from N.
+	// Number of nodes currently stored in the structure. VERY DIFFERENT from N.
 	private int size;
 	
 	// Dummy node v2. This indicates that there was once a node, but now it has been deleted. Helps prevent problems with delete algorithm.
@@ -27,6 +40,82 @@ public class LQHashed {
 	// Primary storage array
 	private String[] data;
 	
+	// The pre-processing algorithm that converts keys into pseudo-keys.
+	private HashStrategy hashStrategy;
+	
+	// Optional filter in front of fetch and delete that rejects keys that were never inserted, null when disabled.
+	private BlockedBloomFilter bloom;
+	
+	// The Bloom filter for the new storage area, filled as a rehash moves nodes and swapped in when it completes.
+	// Null when no rehash is in progress or the filter is disabled.
+	private BlockedBloomFilter nextBloom;
+	
+	// The false positive rate the Bloom filter is built for.
+	private double bloomFalsePositiveRate;
+	
+	// Identifies a snapshot file, "LQHS", and the version of its format.
+	private static final int SNAPSHOT_MAGIC = 0x4C514853;
+	private static final int SNAPSHOT_VERSION = 2;
+	// The location written after the last record, since the header counts can't be trusted to match the occupied locations.
+	private static final int SNAPSHOT_END = -1;
+	
+	// The size of the direct buffers snapshots are written and read through.
+	private static final int SNAPSHOT_BUFFER = 1 << 22;
+	
+	// The number of keys a batch operation probes at the same time.
+	private static final int BATCH_WIDTH = 8;
+	
+	// The number of locations checked by the most recent probe.
+	private int lastProbes;
+	
+	// The number of deleted nodes left in the primary storage array.
+	private int tombstones;
+	
+	// When tombstones / nodes stored goes over this ratio, the primary storage array is purged of deleted nodes.
+	private double purgeRatio = 0.5;
+	
+	// When (nodes + tombstones) / N goes over this fraction, the primary storage array is purged of deleted nodes,
+	// since a miss has to probe until it reaches an empty location.
+	private double purgeOccupancy = 0.9;
+	
+	// The number of purges that have been started.
+	private int purgeCount;
+	
+	// The number of nodes in the primary storage array, and the sum of the probe distances they were stored at.
+	private int primaryNodes;
+	private long probeDistance;
+	
+	// The pseudo-key of the node stored at each location of the primary storage array. Checked before comparing strings.
+	private int[] pseudoKeys;
+	
+	// Whether the structure grows once it is full to loading factor, instead of rejecting inserts.
+	private boolean growable;
+	
+	// The number of old storage locations moved into the new primary storage array on each operation during a rehash.
+	private static final int REHASH_STEPS = 16;
+	
+	// The previous primary storage array while an incremental rehash is in progress, null otherwise.
+	private String[] oldData;
+	
+	// The pseudo-keys of the previous primary storage array.
+	private int[] oldPseudoKeys;
+	
+	// The number of locations in the previous primary storage array.
+	private int oldN;
+	
+	// The next location of the previous primary storage array to be moved.
+	private int rehashIndex;
+	
+	// The number of rehashes, growth or purge, that have been started.
+	private int rehashCount;
+	
+	// The number of operations that paused to move nodes during a rehash.
+	private long rehashPauses;
+	
+	// The total and the longest time, in nanoseconds, that operations paused to move nodes.
+	private long rehashPauseTotal;
+	private long rehashPauseMax;
+	
 	
 	
 	/**
@@ -34,8 +123,42 @@ public class LQHashed {
 	 * @param length= The number of nodes to be stored in the data structure.
 	 */
 	public LQHashed(int length) {
+		this(length, false);
+	}
+	/**
+	 * Constructs a LQHashed data structure that can hold length nodes, optionally growing past that.
+	 * When growable, reaching the loading factor starts an incremental rehash into a larger 4k + 3 prime storage area
+	 * instead of rejecting the insert. The nodes are moved a few locations at a time on each operation.
+	 * @param length= The number of nodes to be stored in the data structure before it has to grow.
+	 * @param growable= Whether the structure grows instead of rejecting inserts once it is full to loading factor.
+	 */
+	public LQHashed(int length, boolean growable) {
+		this(length, growable, new FoldShiftHash());
+	}
+	/**
+	 * Constructs a LQHashed data structure that can hold length nodes, using the given pre-processing algorithm.
+	 * @param length= The number of nodes to be stored in the data structure before it has to grow.
+	 * @param growable= Whether the structure grows instead of rejecting inserts once it is full to loading factor.
+	 * @param hashStrategy= The pre-processing algorithm that converts keys into pseudo-keys.
+	 */
+	public LQHashed(int length, boolean growable, HashStrategy hashStrategy) {
+		this(length, growable, hashStrategy, 0.75);
+	}
+	/**
+	 * Constructs a LQHashed data structure with a loading factor other than the default 0.75, so the probe lengths of
+	 * fuller tables can be measured. The loading factor is not recorded in snapshots, which restore with 0.75.
+	 * @param length= The number of nodes to be stored in the data structure before it has to grow.
+	 * @param growable= Whether the structure grows instead of rejecting inserts once it is full to loading factor.
+	 * @param hashStrategy= The pre-processing algorithm that converts keys into pseudo-keys.
+	 * @param loadingFactor= Max number of nodes to store / Number of storage locations, below 1.
+	 */
+	LQHashed(int length, boolean growable, HashStrategy hashStrategy, double loadingFactor) {
+		
+		this.growable = growable;
+		this.hashStrategy = hashStrategy;
+		this.loadingFactor = loadingFactor;
 		
-		// 33% larger than storage array.
+		// 33% larger than storage array at the default loading factor.
 		int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
 		
 		// Find the optimal size of the array, this will be a 4k + 3 prime number to minimize collisions.
@@ -43,12 +166,13 @@ public class LQHashed {
 		
 		// Initialize the primary storage array with optimal amount of space given by fourKPlus3 algorithm.
 		data = new String[N];
+		pseudoKeys = new int[N];
 		
 		// Dummy node for deletion algorithm.
 		deleted = new String("");
 		
-		// The given max number of nodes to be stored in the structure.
-		size = length;
+		// No nodes are stored yet.
+		size = 0;
 		
 		// Everything else is null.
 		for (int i = 0; i < N; i++) {
@@ -62,34 +186,49 @@ public class LQHashed {
 	 * @return
 	 */
 	public boolean insert(String newListing) {
+		// Pre-process the key
+		return insert(newListing, stringToInt(newListing));
+	}
+	/**
+	 * Attempts to insert newListing into the structure, given its already computed pseudo-key.
+	 * @param newListing = The new listing to insert into the structure.
+	 * @param pk = The pseudo-key of newListing.
+	 * @return True if the listing was inserted, false otherwise.
+	 */
+	private boolean insert(String newListing, int pk) {
 		// Whether we have had an error.
 		boolean noError;
-		// No, we haven't 
-		boolean hit = false;
-		int pass, q, offset, ip;
-		// Pre-process the key
-		int pk = stringToInt(newListing);
+		int ip;
+		// Move a few nodes along if we are in the middle of a rehash.
+		rehashStep();
+		// If the structure is full to loading factor and is allowed to grow
+		if ((((double) size) / N) >= loadingFactor && growable) {
+			// Start moving the nodes into a larger storage area.
+			int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
+			startRehash(growthSize(Math.max(size, 1) * 2, pct));
+		}
 		// If the structure is not full to loading factor
 		if ((((double) size) / N) < loadingFactor) {
-			pass = 0;
-			q = pk / N;
-			offset = q;
-			// Division hashing.
-			ip = pk % N;
-			if (q % N == 0) {
-				offset = defaultQuotient;
-			}
-			while (pass < N) {
-				if (data[ip] == null || data[ip] == deleted) {
-					hit = true;
-					break;
+			// Find a free location in the primary storage area.
+			ip = findFree(data, N, pk);
+			if (ip != -1) {
+				// If we are reusing the location of a deleted node, there is one fewer deleted node.
+				if (data[ip] == deleted) {
+					tombstones--;
 				}
-				ip = (ip + offset) % N;
-				pass++;
-			}
-			if (hit == true) {
 				data[ip] = newListing;
+				pseudoKeys[ip] = pk;
 				size++;
+				primaryNodes++;
+				probeDistance += lastProbes;
+				if (bloom != null) {
+					bloom.add(newListing.hashCode());
+				}
+				if (nextBloom != null) {
+					nextBloom.add(newListing.hashCode());
+				}
+				// Filling an empty location may leave too few of them for misses to stop quickly.
+				purgeIfNeeded();
 				noError = true;
 				return noError;
 			}
@@ -111,48 +250,134 @@ public class LQHashed {
 	 * @return The Node whose key-field matches the targetKey, null if we couldn't find it.
 	 */
 	public String fetch(String targetKey) {
-		boolean hit = false;
-		int pass, q, offset, ip;
+		int ip;
+		// Move a few nodes along if we are in the middle of a rehash.
+		rehashStep();
+		// If the Bloom filter says the key was never inserted, there is no need to probe.
+		if (bloom != null && !bloom.mightContain(targetKey.hashCode())) {
+			return null;
+		}
 		// Convert the non-numeric key into an integer pseudo-key.
 		int pk = stringToInt(targetKey);
-		pass = 0;
-		// Initially, the quotient is just the pseudo-key divided by the number of locations in data storage area.
-		q = pk / N;
-		// Our offset will be the quotient.
-		offset = q;
-		// Division hashing.
-		ip = pk % N;
-		// q / N has remainder 0
-		if (q % N == 0) {
-			// Then the offset will instead be the default 4k + 3 prime (other than N).
-			offset = defaultQuotient;
-		}
-		while (pass  < N) {
-			// If the node is not in the structure
-			if (data[ip] == null) {
-				break;
-			}
-			// If the key at ip is the same as the target key
-			if (data[ip].compareTo(targetKey) == 0) {
-				// We found the node
-				hit = true;
-				break;
-			}
-			// If we haven't found the key at the node, and we haven't found null, then a collision has occurred.
-			ip = (ip + offset) % N;
-			// We are going to have to loop again so increment number of passes.
-			pass++;
-		}
+		// Look in the primary storage area first.
+		ip = findKey(data, pseudoKeys, N, pk, targetKey);
 		// If we found the node that has the target key
-		if (hit == true) {
+		if (ip != -1) {
 			// Return the node.
 			return data[ip];
 		}
-		// Otherwise
-		else {
-			// Return null.
-			return null;
+		// If a rehash is in progress, the node may not have been moved yet.
+		if (oldData != null) {
+			ip = findKey(oldData, oldPseudoKeys, oldN, pk, targetKey);
+			if (ip != -1) {
+				return oldData[ip];
+			}
+		}
+		// Otherwise return null.
+		return null;
+	}
+	/**
+	 * Retrieves the nodes for a batch of keys. The keys are taken BATCH_WIDTH at a time: all of their pseudo-keys and home
+	 * locations are computed first, then their probe loops are stepped in turn, so the memory reads of different keys
+	 * overlap instead of each key waiting on its own cache misses.
+	 * @param keys = The key-fields of the nodes we wish to retrieve.
+	 * @param out = Receives the node for each key at the same index, null if we couldn't find it. At least as long as keys.
+	 */
+	public void fetchAll(String[] keys, String[] out) {
+		int[] pk = new int[BATCH_WIDTH];
+		int[] ip = new int[BATCH_WIDTH];
+		int[] offset = new int[BATCH_WIDTH];
+		int[] pass = new int[BATCH_WIDTH];
+		boolean[] done = new boolean[BATCH_WIDTH];
+		boolean[] rejected = new boolean[BATCH_WIDTH];
+		int count, active, q, k;
+		String listing;
+		for (int start = 0; start < keys.length; start += BATCH_WIDTH) {
+			// Move a few nodes along if we are in the middle of a rehash, once per key like fetch does.
+			count = Math.min(BATCH_WIDTH, keys.length - start);
+			for (k = 0; k < count; k++) {
+				rehashStep();
+			}
+			// Compute every pseudo-key and starting location of the group first.
+			for (k = 0; k < count; k++) {
+				pk[k] = stringToInt(keys[start + k]);
+				q = pk[k] / N;
+				offset[k] = q;
+				ip[k] = pk[k] % N;
+				if (q % N == 0) {
+					offset[k] = defaultQuotient;
+				}
+				pass[k] = 0;
+				// Keys the Bloom filter rejects are finished before they start.
+				rejected[k] = bloom != null && !bloom.mightContain(keys[start + k].hashCode());
+				done[k] = rejected[k];
+				out[start + k] = null;
+			}
+			// Take one probe step for every key still looking, until they have all finished.
+			active = 0;
+			for (k = 0; k < count; k++) {
+				if (!done[k]) {
+					active++;
+				}
+			}
+			while (active > 0) {
+				for (k = 0; k < count; k++) {
+					if (done[k]) {
+						continue;
+					}
+					listing = data[ip[k]];
+					// If we reached an empty location or checked every location, the key is not in the primary storage area.
+					if (listing == null || pass[k] >= N) {
+						done[k] = true;
+						active--;
+					}
+					else if (pseudoKeys[ip[k]] == pk[k] && listing != deleted && listing.equals(keys[start + k])) {
+						out[start + k] = listing;
+						done[k] = true;
+						active--;
+					}
+					else {
+						ip[k] = (ip[k] + offset[k]) % N;
+						pass[k]++;
+					}
+				}
+			}
+			// If a rehash is in progress, look for the keys we missed in the old storage area.
+			if (oldData != null) {
+				for (k = 0; k < count; k++) {
+					if (out[start + k] == null && !rejected[k]) {
+						int at = findKey(oldData, oldPseudoKeys, oldN, pk[k], keys[start + k]);
+						if (at != -1) {
+							out[start + k] = oldData[at];
+						}
+					}
+				}
+			}
+		}
+	}
+	/**
+	 * Inserts a batch of listings. The pseudo-keys of BATCH_WIDTH listings are computed together before any of them is stored.
+	 * The listings are then stored one at a time rather than interleaved, since two listings of the same batch may probe
+	 * for the same free location.
+	 * @param newListings = The new listings to insert into the structure.
+	 * @return The number of listings inserted.
+	 */
+	public int insertAll(String[] newListings) {
+		int[] pk = new int[BATCH_WIDTH];
+		int inserted = 0;
+		int count, k;
+		for (int start = 0; start < newListings.length; start += BATCH_WIDTH) {
+			count = Math.min(BATCH_WIDTH, newListings.length - start);
+			for (k = 0; k < count; k++) {
+				pk[k] = stringToInt(newListings[start + k]);
+			}
+			for (k = 0; k < count; k++) {
+				if (insert(newListings[start + k], pk[k])) {
+					inserted++;
+				}
+			}
 		}
+		return inserted;
 	}
 	/**
 	 * Deletes the target item and inserts a new item to replace it.
@@ -183,164 +408,718 @@ public class LQHashed {
 	public boolean delete(String targetKey) {
 		// Whether or not we have had an error.
 		boolean noError;
-		// Not hits yet.
-		boolean hit = false;
-		// The pass number, quotient, offset(either quotient or default-quotient), and the index.
-		int pass, q, offset, ip;
+		int ip;
+		// Move a few nodes along if we are in the middle of a rehash.
+		rehashStep();
+		// If the Bloom filter says the key was never inserted, there is nothing to delete.
+		if (bloom != null && !bloom.mightContain(targetKey.hashCode())) {
+			noError = false;
+			return noError;
+		}
 		// Preprocess the key into a pseudo-key.
 		int pk = stringToInt(targetKey);
+		// Look in the primary storage area first.
+		ip = findKey(data, pseudoKeys, N, pk, targetKey);
+		// If we found our node
+		if (ip != -1) {
+			// Set the node to our deleted node instead of null.
+			data[ip] = deleted;
+			// Decrement the number of nodes stored.
+			size--;
+			primaryNodes--;
+			probeDistance -= lastProbes;
+			tombstones++;
+			// If the deleted nodes are slowing down probes, start purging them.
+			purgeIfNeeded();
+			// We did not have an error so return true.
+			noError = true;
+			return noError;
+		}
+		// If a rehash is in progress, the node may not have been moved yet.
+		if (oldData != null) {
+			ip = findKey(oldData, oldPseudoKeys, oldN, pk, targetKey);
+			if (ip != -1) {
+				oldData[ip] = deleted;
+				size--;
+				noError = true;
+				return noError;
+			}
+		}
+		// Otherwise, if we went through all the passes and still didn't find the node
+		// Return false since we did not delete the node.
+		noError = false;
+		return noError;
+	}
+	/**
+	 * Probes a storage area for the location of the node whose key matches targetKey.
+	 * @param table = The storage area to probe.
+	 * @param keys = The pseudo-keys of the nodes in the storage area.
+	 * @param n = The number of locations in the storage area.
+	 * @param pk = The pseudo-key of targetKey.
+	 * @param targetKey = The key of the node we are looking for.
+	 * @return The location of the node, -1 if it is not in the storage area.
+	 */
+	private int findKey(String[] table, int[] keys, int n, int pk, String targetKey) {
+		// The pass number, quotient, offset(either quotient or default-quotient), and the index.
+		int pass, q, offset, ip;
 		// We have not done any passes yet.
 		pass = 0;
-		// The quotient.
-		q = pk / N;
-		// The offset is just the quotient.
+		// Initially, the quotient is just the pseudo-key divided by the number of locations in the storage area.
+		q = pk / n;
+		// Our offset will be the quotient.
 		offset = q;
-		// division hashing
-		ip = pk % N;
-		// If q / N has remainder 0
-		if (q % N == 0) {
-			// We use our default quotient instead
+		// Division hashing.
+		ip = pk % n;
+		// q / n has remainder 0
+		if (q % n == 0) {
+			// Then the offset will instead be the default 4k + 3 prime (other than n).
 			offset = defaultQuotient;
 		}
-		// While we haven't checked all the locations
-		while (pass < N) {
-			// If the node at the probing index is null
-			if (data[ip] == null) {
+		while (pass < n) {
+			// If the node is not in the structure
+			if (table[ip] == null) {
 				break;
 			}
-			// If we found the node whose key matches the targetKey.
-			if (data[ip].compareTo(targetKey) == 0) {
-				// We have a HIT !
-				hit = true;
-				break;
+			// If the key at ip is the same as the target key. Only compare the strings when the pseudo-keys match,
+			// the deleted node is never compared since it is not a real key.
+			if (keys[ip] == pk && table[ip] != deleted && table[ip].equals(targetKey)) {
+				// We found the node
+				lastProbes = pass + 1;
+				return ip;
 			}
-			// If the node we are probing wasn't null, and it wasn't the targetKey, then we have had a collision. Adjust the probing index by our offset.
-			ip = (ip + offset) % N;
-			// We are going to have to probe again.
+			// If we haven't found the key at the node, and we haven't found null, then a collision has occurred.
+			ip = (ip + offset) % n;
+			// We are going to have to loop again so increment number of passes.
 			pass++;
 		}
-		// If we found our node
-		if (hit == true) {
-			// Set the node to our deleted node instead of null.
-			data[ip] = deleted;
-			// Decrement the number of nodes stored.
-			size--;
-			// We did not have an error so return true.
-			noError = true;
-			return noError;
+		// Count the location that ended the probe, unless every location was checked.
+		lastProbes = Math.min(pass + 1, n);
+		return -1;
+	}
+	/**
+	 * Probes a storage area for the first location that is empty or holds a deleted node.
+	 * @param table = The storage area to probe.
+	 * @param n = The number of locations in the storage area.
+	 * @param pk = The pseudo-key of the node we are going to store.
+	 * @return The free location, -1 if every location is taken.
+	 */
+	private int findFree(String[] table, int n, int pk) {
+		int pass, q, offset, ip;
+		pass = 0;
+		q = pk / n;
+		offset = q;
+		// Division hashing.
+		ip = pk % n;
+		if (q % n == 0) {
+			offset = defaultQuotient;
 		}
-		// Otherwise, if we went through all the passes and still didn't find the node
-		else {
-			// Return false since we did not delete the node.
-			noError = false;
-			return noError;
+		while (pass < n) {
+			if (table[ip] == null || table[ip] == deleted) {
+				lastProbes = pass + 1;
+				return ip;
+			}
+			ip = (ip + offset) % n;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Starts a purge of the deleted nodes if there are too many of them compared with the nodes stored, or if so few
+	 * locations of the primary storage area are empty that a miss probes most of it. The purge is an incremental rehash
+	 * into a fresh storage area of the same size, so it runs in bounded steps on later operations.
+	 */
+	private void purgeIfNeeded() {
+		// A purge is already running, or there is nothing to purge.
+		if (oldData != null || tombstones == 0) {
+			return;
+		}
+		if (tombstones > purgeRatio * Math.max(size, 1) || primaryNodes + tombstones > purgeOccupancy * N) {
+			startRehash(N);
+			purgeCount++;
+		}
+	}
+	/**
+	 * Starts an incremental rehash into a new storage area. Growth asks for the 4k + 3 prime given by growthSize
+	 * for twice the nodes currently stored. A purge asks for the current N, which leaves the deleted nodes behind.
+	 * If a rehash is still in progress it is finished first.
+	 * @param newN = The number of locations of the new storage area, a 4k + 3 prime.
+	 */
+	private void startRehash(int newN) {
+		// Finish moving the nodes of any earlier rehash so there are only ever two storage areas.
+		while (oldData != null) {
+			rehashStep();
 		}
+		// The current storage area becomes the old one.
+		oldData = data;
+		oldPseudoKeys = pseudoKeys;
+		oldN = N;
+		rehashIndex = 0;
+		// Allocate the new primary storage area. It has no deleted nodes yet.
+		N = newN;
+		data = new String[N];
+		pseudoKeys = new int[N];
+		tombstones = 0;
+		primaryNodes = 0;
+		probeDistance = 0;
+		rehashCount++;
+		// Start a filter sized for the new storage area. It only gets the nodes that reach it, so deleted keys drop out.
+		if (bloom != null) {
+			nextBloom = new BlockedBloomFilter(Math.max((int) (N * loadingFactor), size), bloomFalsePositiveRate);
+		}
+	}
+	/**
+	 * Moves up to REHASH_STEPS locations of the old storage area into the primary storage area,
+	 * recording how long the calling operation was paused.
+	 */
+	private void rehashStep() {
+		// If there is no rehash in progress there is nothing to move.
+		if (oldData == null) {
+			return;
+		}
+		long start = System.nanoTime();
+		int moved = 0;
+		String listing;
+		int pk;
+		while (moved < REHASH_STEPS && rehashIndex < oldN) {
+			listing = oldData[rehashIndex];
+			// If the location holds a live node
+			if (listing != null && listing != deleted) {
+				// Store it in the primary storage area, reusing its cached pseudo-key.
+				pk = oldPseudoKeys[rehashIndex];
+				int ip = findFree(data, N, pk);
+				// If we are reusing the location of a deleted node, there is one fewer deleted node.
+				if (data[ip] == deleted) {
+					tombstones--;
+				}
+				data[ip] = listing;
+				pseudoKeys[ip] = pk;
+				primaryNodes++;
+				probeDistance += lastProbes;
+				if (nextBloom != null) {
+					nextBloom.add(listing.hashCode());
+				}
+				// Leave a deleted node behind so probes for nodes not yet moved still get past this location.
+				oldData[rehashIndex] = deleted;
+			}
+			rehashIndex++;
+			moved++;
+		}
+		// If every location has been moved, the old storage area is no longer needed.
+		if (rehashIndex == oldN) {
+			oldData = null;
+			oldPseudoKeys = null;
+			// The new filter now holds every live node, swap it in.
+			if (nextBloom != null) {
+				bloom = nextBloom;
+				nextBloom = null;
+			}
+		}
+		long pause = System.nanoTime() - start;
+		rehashPauses++;
+		rehashPauseTotal += pause;
+		if (pause > rehashPauseMax) {
+			rehashPauseMax = pause;
+		}
+	}
+	/**
+	 * Tests whether an incremental rehash is in progress.
+	 * @return True if nodes are still being moved into a new storage area, false otherwise.
+	 */
+	public boolean isRehashing() {
+		return oldData != null;
+	}
+	/**
+	 * The fraction of the old storage area that has been moved during the current rehash.
+	 * @return A value from 0.0 to 1.0, 1.0 if no rehash is in progress.
+	 */
+	public double getRehashProgress() {
+		if (oldData == null) {
+			return 1.0;
+		}
+		return ((double) rehashIndex) / oldN;
+	}
+	/**
+	 * The number of rehashes that have been started since the structure was constructed.
+	 * @return The number of rehashes.
+	 */
+	public int getRehashCount() {
+		return rehashCount;
+	}
+	/**
+	 * The number of operations that paused to move nodes during a rehash.
+	 * @return The number of pauses.
+	 */
+	public long getRehashPauses() {
+		return rehashPauses;
+	}
+	/**
+	 * The total time operations have paused to move nodes during a rehash.
+	 * @return The total pause time in nanoseconds.
+	 */
+	public long getRehashPauseTotalNanos() {
+		return rehashPauseTotal;
+	}
+	/**
+	 * The longest time a single operation has paused to move nodes during a rehash.
+	 * @return The longest pause time in nanoseconds.
+	 */
+	public long getRehashPauseMaxNanos() {
+		return rehashPauseMax;
+	}
+	/**
+	 * Puts a Bloom filter in front of fetch and delete, sized for the number of nodes the primary storage area can hold
+	 * before it is full to loading factor. Keys that were never inserted are then rejected without probing.
+	 * While a rehash or purge moves nodes, a new filter sized for the new storage area is filled a few nodes at a time,
+	 * and it replaces the old one when the rehash completes, so deleted keys drop out without a pause to rebuild.
+	 * @param falsePositiveRate = The fraction of absent keys allowed through to a probe, for example 0.01.
+	 */
+	public void enableBloomFilter(double falsePositiveRate) {
+		bloomFalsePositiveRate = falsePositiveRate;
+		rebuildBloomFilter();
+	}
+	/**
+	 * Removes the Bloom filter.
+	 */
+	public void disableBloomFilter() {
+		bloom = null;
+		nextBloom = null;
+	}
+	/**
+	 * The Bloom filter in front of fetch and delete, for reading its memory use, false positive rate and rejection counts.
+	 * @return The filter, null if it is disabled.
+	 */
+	public BlockedBloomFilter getBloomFilter() {
+		return bloom;
+	}
+	/**
+	 * Builds a new Bloom filter holding every live node, sized for the current storage area. During a rehash it also
+	 * starts the filter for the new storage area with the nodes already moved there.
+	 */
+	private void rebuildBloomFilter() {
+		bloom = new BlockedBloomFilter(Math.max((int) (N * loadingFactor), size), bloomFalsePositiveRate);
+		for (int i = 0; i < N; i++) {
+			if (data[i] != null && data[i] != deleted) {
+				bloom.add(data[i].hashCode());
+			}
+		}
+		nextBloom = null;
+		if (oldData != null) {
+			nextBloom = new BlockedBloomFilter(Math.max((int) (N * loadingFactor), size), bloomFalsePositiveRate);
+			for (int i = 0; i < N; i++) {
+				if (data[i] != null && data[i] != deleted) {
+					nextBloom.add(data[i].hashCode());
+				}
+			}
+			for (int i = 0; i < oldN; i++) {
+				if (oldData[i] != null && oldData[i] != deleted) {
+					bloom.add(oldData[i].hashCode());
+				}
+			}
+		}
+	}
+	/**
+	 * The number of deleted nodes in the primary storage array. Probes have to walk past these.
+	 * @return The number of deleted nodes.
+	 */
+	public int getTombstones() {
+		return tombstones;
+	}
+	/**
+	 * The number of purges of deleted nodes that have been started.
+	 * @return The number of purges.
+	 */
+	public int getPurgeCount() {
+		return purgeCount;
+	}
+	/**
+	 * Sets the ratio of deleted nodes to stored nodes above which the deleted nodes are purged.
+	 * The purge moves the stored nodes into a fresh storage area of the same size, a few locations on each operation.
+	 * @param purgeRatio = The ratio, 0.5 by default.
+	 */
+	public void setPurgeRatio(double purgeRatio) {
+		this.purgeRatio = purgeRatio;
+	}
+	/**
+	 * Sets the fraction of the primary storage array, nodes and deleted nodes together, above which the deleted nodes
+	 * are purged. Without it a table that is not allowed to grow can fill every empty location with deleted nodes
+	 * under churn, and every miss then probes all N locations.
+	 * @param purgeOccupancy = The fraction, 0.9 by default.
+	 */
+	public void setPurgeOccupancy(double purgeOccupancy) {
+		this.purgeOccupancy = purgeOccupancy;
+	}
+	/**
+	 * The fraction of the primary storage array holding a node or a deleted node. A miss probes until it reaches
+	 * one of the remaining empty locations.
+	 * @return The occupied fraction, from 0.0 to 1.0.
+	 */
+	public double getOccupancy() {
+		return ((double) (primaryNodes + tombstones)) / N;
+	}
+	/**
+	 * The average number of locations probed to store the nodes in the primary storage array. This is the number of
+	 * locations a successful fetch checks on average.
+	 * @return The average probe distance, 0 if the primary storage array is empty.
+	 */
+	public double getAverageProbeDistance() {
+		if (primaryNodes == 0) {
+			return 0;
+		}
+		return ((double) probeDistance) / primaryNodes;
+	}
+	/**
+	 * The number of nodes currently stored in the structure.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The number of locations in the primary storage area.
+	 * @return N.
+	 */
+	public int capacity() {
+		return N;
 	}
 	/**
 	 * Calculates the next highest 4k + 3 prime given a pct determined from loadingFactor and above a given integer n, 
-	 * which will be the actual number of nodes we wish to store. Tests higher and higher odd candidate integers to determine if they are prime,
-	 * and then if they are 4k + 3 prime.
-	 * @param n
-	 * @param pct
-	 * @return
+	 * which will be the actual number of nodes we wish to store. The prime is found exactly by FourKPlus3Primes,
+	 * which tests 4k + 3 candidates with Miller-Rabin instead of trial division.
+	 * @param n = The number of nodes we wish to store.
+	 * @param pct = How much larger than n, in percent, the storage area should be.
+	 * @return The smallest 4k + 3 prime at least pct percent larger than n, at most 2^31 - 1.
 	 */
-	private static int fourKPlus3(int n, int pct) {
-		
-		// We haven't found a 4k + 3 prime yet.
-		boolean fkp3 = false;
-		// We haven't even found a prime yet.
-		boolean aPrime = false;
-		// Our prime number that we are looking for.
-		int prime;
-		// The highest divisor of whatever number we are checking.
-		int highDivisor;
-		// 
-		int divisor;
+	static int fourKPlus3(int n, int pct) {
 		double pctd = pct;
-		prime = (int)(n * (1.0 + (pctd / 100.0)));
-		
-		// If prime is even, change it to odd.
-		if (prime % 2 == 0) {	
-			prime = prime + 1;
+		// Grow n by pct, without going past the largest int.
+		long target = (long)(n * (1.0 + (pctd / 100.0)));
+		return FourKPlus3Primes.exact((int) Math.min(target, Integer.MAX_VALUE));
+	}
+	/**
+	 * Calculates the size of the storage area to grow into: the first rung of the FourKPlus3Primes ladder,
+	 * a precomputed 4k + 3 prime, at least pct percent larger than n. Avoids searching for an exact prime while growing.
+	 * @param n = The number of nodes the grown storage area should hold.
+	 * @param pct = How much larger than n, in percent, the storage area should be.
+	 * @return A 4k + 3 prime from the ladder, at most 2^31 - 1.
+	 */
+	static int growthSize(int n, int pct) {
+		double pctd = pct;
+		long target = (long)(n * (1.0 + (pctd / 100.0)));
+		return FourKPlus3Primes.ladder((int) Math.min(target, Integer.MAX_VALUE));
+	}
+	/**
+	 * Converts a key into a pseudo-key with the structure's pre-processing algorithm.
+	 * Sometimes different keys WILL produce the same pseudo-key, so we will need to deal with collisions.
+	 * @param key = the key we wish to convert into a pseudo-key.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	private int stringToInt(String key) {
+		return hashStrategy.hash(key);
+	}
+	/**
+	 * The pre-processing algorithm the structure converts keys with.
+	 * @return The hash strategy.
+	 */
+	public HashStrategy getHashStrategy() {
+		return hashStrategy;
+	}
+	/**
+	 * The number of locations a fetch of targetKey checks, including the location that ends the probe.
+	 * During a rehash this includes the locations checked in the old storage area.
+	 * @param targetKey = The key we wish to probe for.
+	 * @return The probe length.
+	 */
+	public int probeLength(String targetKey) {
+		int pk = stringToInt(targetKey);
+		int probes;
+		// If the key is in the primary storage area, or there is no other storage area to look in
+		if (findKey(data, pseudoKeys, N, pk, targetKey) != -1 || oldData == null) {
+			return lastProbes;
 		}
+		probes = lastProbes;
+		findKey(oldData, oldPseudoKeys, oldN, pk, targetKey);
+		return probes + lastProbes;
+	}
+	/**
+	 * A Spliterator over the nodes in the structure, skipping empty locations and deleted nodes. It splits on ranges of
+	 * locations, so parallel streams can scan the storage area on every core. Before it is split it reports the exact
+	 * number of nodes. It is not fail-fast: it reads the storage area as it goes without checking for changes, so the
+	 * structure must not be changed by insert, delete, or the rehash steps they run while the Spliterator is in use.
+	 * @return A Spliterator over the nodes.
+	 */
+	public Spliterator<String> spliterator() {
+		Spliterator<String> primary = new SlotSpliterator(data, deleted, 0, N, primaryNodes, true);
+		// If a rehash is in progress, the nodes that have not been moved yet are in the old storage area.
+		if (oldData == null) {
+			return primary;
+		}
+		return Stream.concat(StreamSupport.stream(primary, false),
+				StreamSupport.stream(new SlotSpliterator(oldData, deleted, 0, oldN, size - primaryNodes, true), false)).spliterator();
+	}
+	/**
+	 * A sequential Stream over the nodes in the structure.
+	 * @return A Stream of the nodes.
+	 */
+	public Stream<String> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+	/**
+	 * A parallel Stream over the nodes in the structure, split on ranges of locations.
+	 * @return A parallel Stream of the nodes.
+	 */
+	public Stream<String> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+	/*
+	 * Walks a range of locations of a storage area, handing out the live nodes. Splitting hands the first half of the
+	 * range to a new SlotSpliterator. Only an unsplit SlotSpliterator knows exactly how many nodes it holds, the halves
+	 * estimate from the share of locations they cover. Not IMMUTABLE, since the storage area is changed in place by
+	 * inserts, deletes and rehashes, and not fail-fast, since nothing records those changes for it to check.
+	 */
+	private static class SlotSpliterator implements Spliterator<String> {
+		// Ranges smaller than this are not split, the overhead would outweigh the scan.
+		private static final int MIN_SPLIT = 1024;
+		private final String[] table;
+		private final String deleted;
+		// The next location to look at, and one past the last location of the range.
+		private int index;
+		private final int end;
+		// The number of nodes in the range, exact only while sized is true.
+		private long estimate;
+		private boolean sized;
 		
-		// While its not a 4k + 3 prime
-		while(!fkp3) {	
-			// While its not a prime at all
-			while (!aPrime) {
-				highDivisor = (int)(Math.sqrt(prime) + 0.5);
-				// For int d is the highest divisor all the way down to the lowest possible divisor which is 2
-				for (divisor = highDivisor; divisor > 1; divisor--) {
-					// If the prime is divisible by d
-					if (prime % divisor == 0) {
-						// We have found a divisor
-						break;
+		private SlotSpliterator(String[] table, String deleted, int index, int end, long estimate, boolean sized) {
+			this.table = table;
+			this.deleted = deleted;
+			this.index = index;
+			this.end = end;
+			this.estimate = estimate;
+			this.sized = sized;
+		}
+		public boolean tryAdvance(Consumer<? super String> action) {
+			String listing;
+			while (index < end) {
+				listing = table[index++];
+				if (listing != null && listing != deleted) {
+					action.accept(listing);
+					return true;
+				}
+			}
+			return false;
+		}
+		public void forEachRemaining(Consumer<? super String> action) {
+			String listing;
+			// Copy the fields into locals so the loop does not read them again on every location.
+			String[] t = table;
+			String d = deleted;
+			int e = end;
+			for (int i = index; i < e; i++) {
+				listing = t[i];
+				if (listing != null && listing != d) {
+					action.accept(listing);
+				}
+			}
+			index = e;
+		}
+		public Spliterator<String> trySplit() {
+			int middle = (index + end) >>> 1;
+			if (end - index < MIN_SPLIT) {
+				return null;
+			}
+			// The first half takes its share of the nodes, assuming they are spread evenly over the locations.
+			long half = estimate * (middle - index) / (end - index);
+			Spliterator<String> prefix = new SlotSpliterator(table, deleted, index, middle, half, false);
+			index = middle;
+			estimate -= half;
+			sized = false;
+			return prefix;
+		}
+		public long estimateSize() {
+			return estimate;
+		}
+		public int characteristics() {
+			return NONNULL | (sized ? SIZED : 0);
+		}
+	}
+	/**
+	 * Writes a snapshot of the structure to a file. The header records N, the default quotient, the hash strategy with
+	 * its seed, and the counts. Then every occupied location is written as its index, pseudo-key and length-prefixed
+	 * UTF-8 key, with a length of -1 for a deleted node, so readSnapshot can put each node straight back into its
+	 * location without probing. A location of SNAPSHOT_END follows the last record.
+	 * Records are gathered in a large direct buffer and written through a FileChannel.
+	 * A rehash in progress is finished first so every node is in the primary storage area.
+	 * @param file = The file to write, replacing any file with the same name.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeSnapshot(File file) throws IOException {
+		// Finish any rehash so there is only one storage area to write.
+		while (oldData != null) {
+			rehashStep();
+		}
+		byte[] name = hashStrategy.name().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+			buffer.putInt(SNAPSHOT_MAGIC);
+			buffer.putInt(SNAPSHOT_VERSION);
+			buffer.putInt(N);
+			buffer.putInt(defaultQuotient);
+			buffer.putInt(size);
+			buffer.putInt(tombstones);
+			buffer.putLong(probeDistance);
+			buffer.put((byte) (growable ? 1 : 0));
+			buffer.putInt(hashStrategy.seed());
+			buffer.putInt(name.length);
+			buffer.put(name);
+			String listing;
+			int bytes;
+			for (int i = 0; i < N; i++) {
+				listing = data[i];
+				if (listing == null) {
+					continue;
+				}
+				bytes = listing == deleted ? 0 : Utf8Keys.encodedLength(listing);
+				// If the record does not fit, write out what we have. Grow the buffer for a record larger than all of it.
+				if (buffer.remaining() < 12 + bytes) {
+					flush(buffer, channel);
+					if (buffer.capacity() < 12 + bytes) {
+						buffer = ByteBuffer.allocateDirect(12 + bytes);
 					}
 				}
-				// If the divisor wasn't 1, then the number cannot be a prime number by the definition of prime number.
-				if (divisor != 1) {
-					// Change prime to the next odd number.
-					prime = prime + 2;
+				buffer.putInt(i);
+				buffer.putInt(pseudoKeys[i]);
+				if (listing == deleted) {
+					buffer.putInt(-1);
 				}
-				// Otherwise, the divisor is one
 				else {
-					// Thus we have found a prime number.
-					aPrime = true;
+					buffer.putInt(bytes);
+					Utf8Keys.write(listing, buffer, buffer.position());
+					buffer.position(buffer.position() + bytes);
 				}
-			} // End of searching for a prime number.
-			
-			// If three less than the prime number is evenly divisible by 4
-			if ((prime - 3) % 4 == 0) {
-				// We have found a 4k + 3 prime number.
-				fkp3 = true;
 			}
-			// Otherwise, we do not have a 4k + 3 prime number
-			else {
-				// Advance to the next odd number
-				prime = prime + 2;
-				// We no longer know if the number is prime
-				aPrime = false;
-				
+			// Mark the end of the records.
+			if (buffer.remaining() < 4) {
+				flush(buffer, channel);
 			}
-		} // Completed our search for a 4k + 3 prime number.
-		
-		// Return the number we have found.
-		return prime;
+			buffer.putInt(SNAPSHOT_END);
+			flush(buffer, channel);
+			channel.force(false);
+		}
+		finally {
+			out.close();
+		}
 	}
 	/**
-	 * Performs a fold-shifting pre-processing algorithm on a string into a 32 bit integer pseudo-key.
-	 * This is both whitespace and case sensitive. Sometimes different keys WILL produce the same pseudo-key, so we will need to deal with collisions.
-	 * @param key = the key we wish to convert into a pseudo-key.
-	 * @return A non-negative integer pseudo-key.
+	 * Reads a snapshot written by writeSnapshot. The storage area is allocated with the recorded N and every node is put
+	 * straight into its recorded location, so nothing is hashed or probed. The strategy is rebuilt with its recorded seed
+	 * so later inserts and fetches compute the same pseudo-keys, and the counts are taken from the records read.
+	 * @param file = The snapshot file.
+	 * @return The structure the snapshot was taken of. Its Bloom filter, if it had one, is not restored.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	public static LQHashed readSnapshot(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER);
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			buffer.limit(0);
+			buffer = fill(buffer, channel, 41);
+			if (buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+				throw new IOException(file + " is not a LQHashed snapshot");
+			}
+			int n = buffer.getInt();
+			int quotient = buffer.getInt();
+			// The recorded size and tombstones are only informational, the records are counted as they are read.
+			buffer.getInt();
+			buffer.getInt();
+			long distance = buffer.getLong();
+			boolean grows = buffer.get() == 1;
+			int seed = buffer.getInt();
+			int nameLength = buffer.getInt();
+			byte[] name = new byte[nameLength];
+			buffer = fill(buffer, channel, nameLength);
+			buffer.get(name);
+			LQHashed table = new LQHashed(0, grows, HashStrategy.forName(new String(name, StandardCharsets.UTF_8), seed));
+			// Replace the storage area with one of the recorded size.
+			table.N = n;
+			table.defaultQuotient = quotient;
+			table.data = new String[n];
+			table.pseudoKeys = new int[n];
+			int slot, pk, bytes;
+			int stored = 0;
+			int deletedNodes = 0;
+			while (true) {
+				buffer = fill(buffer, channel, 4);
+				slot = buffer.getInt();
+				if (slot == SNAPSHOT_END) {
+					break;
+				}
+				buffer = fill(buffer, channel, 8);
+				pk = buffer.getInt();
+				bytes = buffer.getInt();
+				table.pseudoKeys[slot] = pk;
+				if (bytes == -1) {
+					table.data[slot] = table.deleted;
+					deletedNodes++;
+					continue;
+				}
+				stored++;
+				// Decode with the reverse of Utf8Keys.write, so keys with lone surrogates come back unchanged.
+				buffer = fill(buffer, channel, bytes);
+				table.data[slot] = Utf8Keys.read(buffer, buffer.position(), bytes);
+				buffer.position(buffer.position() + bytes);
+			}
+			table.size = stored;
+			table.tombstones = deletedNodes;
+			table.primaryNodes = stored;
+			table.probeDistance = distance;
+			return table;
+		}
+		finally {
+			in.close();
+		}
+	}
+	/**
+	 * Writes everything in a buffer to a channel and empties the buffer.
+	 * @param buffer = The buffer, in write mode.
+	 * @param channel = The channel to write to.
+	 * @throws IOException if the write fails.
 	 */
-	private static int stringToInt(String key) {
-		// Our pseudo-key is initialized to the non-negative integer 0.
-		int pseudoKey = 0;
-		int charNum = 1;
-		// character we are looking at.
-		int cn = 0;
-		// Convert our string into a character array.
-		char c[] = key.toCharArray();
-		// The grouping that we will fold about.
-		int grouping = 0;
-		// While there are still more characters in the key
-		while (cn < key.length()) {
-			// Shift left 8. This advances grouping 4 characters.
-			grouping = grouping << 8;
-			grouping = grouping + c[cn];
-			cn = cn + 1;
-			// If four characters have been processed or we have processed all the characters.
-			if (charNum == 4 || cn == key.length()) {
-				// Add the grouping to the pseudo key.
-				pseudoKey = pseudoKey + grouping;
-				// Reset n and the grouping.
-				charNum = 0;
-				grouping = 0;
+	private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	/**
+	 * Makes sure a buffer has at least the given number of unread bytes, reading more from the channel if it does not.
+	 * @param buffer = The buffer, in read mode.
+	 * @param channel = The channel to read from.
+	 * @param needed = The number of bytes needed.
+	 * @return The buffer, or a larger one if needed is more than the buffer can hold.
+	 * @throws IOException if the file ends first.
+	 */
+	private static ByteBuffer fill(ByteBuffer buffer, FileChannel channel, int needed) throws IOException {
+		if (buffer.remaining() >= needed) {
+			return buffer;
+		}
+		if (buffer.capacity() < needed) {
+			ByteBuffer larger = ByteBuffer.allocateDirect(needed);
+			larger.put(buffer);
+			buffer = larger;
+		}
+		else {
+			buffer.compact();
+		}
+		while (buffer.position() < needed) {
+			if (channel.read(buffer) == -1) {
+				throw new IOException("Snapshot ended early");
 			}
-			charNum++;
 		}
-		// Return the absolute value of the calculated pseudo-key.
-		return Math.abs(pseudoKey);
+		buffer.flip();
+		return buffer;
 	}
 	/**
 	 * Outputs the nodes in the structure to the console.
@@ -354,5 +1133,13 @@ public class LQHashed {
 				System.out.println(data[i]);
 			}
 		}
+		// If a rehash is in progress, output the nodes that have not been moved yet.
+		if (oldData != null) {
+			for (int i = 0; i < oldN; i++) {
+				if (oldData[i] != null && oldData[i] != deleted) {
+					System.out.println(oldData[i]);
+				}
+			}
+		}
 	}
 }
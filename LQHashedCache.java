@@ -0,0 +1,293 @@
+/**
+ * A bounded cache built on the Linear Quotient collision algorithm of LQHashed. Instead of rejecting an insert once the
+ * structure is full to loading factor, it evicts a node chosen by the CLOCK replacement policy: every location has a
+ * recency bit that a fetch hit sets, and a clock hand sweeps the locations, clearing set bits and evicting the first
+ * node whose bit is already clear. A fetch only writes one byte, so reads need no linked list and no lock.
+ * 
+ * Evicted and deleted nodes leave deleted nodes behind like LQHashed. When they fill half of the locations left over
+ * above capacity, the storage area is rebuilt without them, keeping each node's recency bit, so misses still reach an
+ * empty location quickly.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class LQHashedCache {
+	// The number of locations allocated to the primary storage array.
+	private int N;
+	
+	// A default 4k + 3 prime.
+	private int defaultQuotient = 9967;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private double loadingFactor = 0.75;
+	
+	// Number of nodes currently stored in the cache, and the most it will hold before evicting.
+	private int size;
+	private int capacity;
+	
+	// Dummy node. This indicates that there was once a node, but now it has been deleted or evicted.
+	private String deleted = new String("");
+	
+	// Primary storage array, the pseudo-key of each node, and the recency bit of each node.
+	private String[] data;
+	private int[] pseudoKeys;
+	private byte[] referenced;
+	
+	// The next location the clock hand will look at.
+	private int hand;
+	
+	// The number of deleted nodes in the primary storage array.
+	private int tombstones;
+	
+	// The pre-processing algorithm that converts keys into pseudo-keys.
+	private HashStrategy hashStrategy;
+	
+	// Statistics for sizing the cache.
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long probes;
+	private long lookups;
+	private int maxProbes;
+	
+	/**
+	 * Constructs a cache that holds at most capacity nodes, converting keys with fold shifting.
+	 * @param capacity = The most nodes the cache will hold before evicting.
+	 */
+	public LQHashedCache(int capacity) {
+		this(capacity, new FoldShiftHash());
+	}
+	/**
+	 * Constructs a cache that holds at most capacity nodes.
+	 * @param capacity = The most nodes the cache will hold before evicting.
+	 * @param hashStrategy = The pre-processing algorithm that converts keys into pseudo-keys.
+	 */
+	public LQHashedCache(int capacity, HashStrategy hashStrategy) {
+		int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
+		this.hashStrategy = hashStrategy;
+		this.capacity = Math.max(capacity, 1);
+		N = LQHashed.fourKPlus3(this.capacity, pct);
+		data = new String[N];
+		pseudoKeys = new int[N];
+		referenced = new byte[N];
+		size = 0;
+	}
+	/**
+	 * Inserts newListing into the cache, evicting a node first if the cache is full.
+	 * @param newListing = The new listing to insert into the cache.
+	 * @return True if the listing was inserted, false otherwise.
+	 */
+	public boolean insert(String newListing) {
+		// If the cache is full, make room.
+		if (size >= capacity) {
+			evict();
+		}
+		int pk = hashStrategy.hash(newListing);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			if (data[ip] == null || data[ip] == deleted) {
+				if (data[ip] == deleted) {
+					tombstones--;
+				}
+				data[ip] = newListing;
+				pseudoKeys[ip] = pk;
+				// A new node has not been used yet, so it is the first candidate for eviction.
+				referenced[ip] = 0;
+				size++;
+				return true;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return false;
+	}
+	/**
+	 * Retrieves the node with key-field given by targetKey, marking it recently used.
+	 * @param targetKey = The key-field of the node we wish to retrieve.
+	 * @return The node whose key-field matches the targetKey, null if it is not cached.
+	 */
+	public String fetch(String targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			misses++;
+			return null;
+		}
+		hits++;
+		// Only write the bit if it is not already set, so hot nodes do not keep dirtying their cache line.
+		if (referenced[ip] == 0) {
+			referenced[ip] = 1;
+		}
+		return data[ip];
+	}
+	/**
+	 * Deletes the node given by the targetKey from the cache.
+	 * @param targetKey = The key of the node we wish to delete
+	 * @return True if we deleted the node, false otherwise.
+	 */
+	public boolean delete(String targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		remove(ip);
+		return true;
+	}
+	/**
+	 * Probes for the location of targetKey, recording the probe length.
+	 * @param targetKey = The key we are looking for.
+	 * @return The location of the key, -1 if it is not cached.
+	 */
+	private int find(String targetKey) {
+		int pk = hashStrategy.hash(targetKey);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		int found = -1;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			if (data[ip] == null) {
+				break;
+			}
+			if (pseudoKeys[ip] == pk && data[ip] != deleted && data[ip].equals(targetKey)) {
+				found = ip;
+				break;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		lookups++;
+		probes += pass + 1;
+		if (pass + 1 > maxProbes) {
+			maxProbes = pass + 1;
+		}
+		return found;
+	}
+	/**
+	 * Advances the clock hand until it finds a node whose recency bit is clear, clearing the bits it passes, and evicts that node.
+	 */
+	private void evict() {
+		while (true) {
+			if (data[hand] != null && data[hand] != deleted) {
+				// Recently used: give it another turn of the clock.
+				if (referenced[hand] != 0) {
+					referenced[hand] = 0;
+				}
+				else {
+					remove(hand);
+					evictions++;
+					hand = (hand + 1) % N;
+					return;
+				}
+			}
+			hand = (hand + 1) % N;
+		}
+	}
+	/**
+	 * Replaces the node at a location with the dummy node, rebuilding the storage area if too many dummy nodes have built up.
+	 * @param ip = The location of the node.
+	 */
+	private void remove(int ip) {
+		data[ip] = deleted;
+		size--;
+		tombstones++;
+		if (tombstones > (N - capacity) / 2) {
+			rebuild();
+		}
+	}
+	/**
+	 * Moves every node into a fresh storage area of the same size, dropping the dummy nodes and keeping the recency bits.
+	 */
+	private void rebuild() {
+		String[] oldData = data;
+		int[] oldPseudoKeys = pseudoKeys;
+		byte[] oldReferenced = referenced;
+		data = new String[N];
+		pseudoKeys = new int[N];
+		referenced = new byte[N];
+		int pk, q, offset, ip;
+		for (int i = 0; i < N; i++) {
+			if (oldData[i] != null && oldData[i] != deleted) {
+				pk = oldPseudoKeys[i];
+				q = pk / N;
+				offset = q;
+				ip = pk % N;
+				if (q % N == 0) {
+					offset = defaultQuotient;
+				}
+				while (data[ip] != null) {
+					ip = (ip + offset) % N;
+				}
+				data[ip] = oldData[i];
+				pseudoKeys[ip] = pk;
+				referenced[ip] = oldReferenced[i];
+			}
+		}
+		tombstones = 0;
+	}
+	/**
+	 * The number of nodes currently cached.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The fraction of fetches that found their node.
+	 * @return The hit rate, 0 if there have been no fetches.
+	 */
+	public double getHitRate() {
+		if (hits + misses == 0) {
+			return 0;
+		}
+		return ((double) hits) / (hits + misses);
+	}
+	/**
+	 * The number of fetches that found their node.
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits;
+	}
+	/**
+	 * The number of fetches that did not find their node.
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+	/**
+	 * The number of nodes evicted to make room for inserts.
+	 * @return The number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+	/**
+	 * The average number of locations checked by a fetch or delete.
+	 * @return The average probe length, 0 if there have been no lookups.
+	 */
+	public double getAverageProbeLength() {
+		if (lookups == 0) {
+			return 0;
+		}
+		return ((double) probes) / lookups;
+	}
+	/**
+	 * The largest number of locations checked by a single fetch or delete.
+	 * @return The longest probe length.
+	 */
+	public int getMaxProbeLength() {
+		return maxProbes;
+	}
+}
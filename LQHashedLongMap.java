@@ -0,0 +1,188 @@
+/**
+ * A version of LQHashedMap specialized to primitive long keys, so keys are never boxed.
+ * Each location has a state of empty, live or deleted in place of the null and dummy nodes used by LQHashed,
+ * since every long is a valid key. Uses the same Linear Quotient collision algorithm as LQHashed.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ * @param <V> The type of the values.
+ */
+public class LQHashedLongMap<V> {
+	// The states a location can be in.
+	private static final byte EMPTY = 0;
+	private static final byte LIVE = 1;
+	private static final byte DELETED = 2;
+	
+	// The number of locations allocated to the primary storage arrays.
+	private int N;
+	
+	// A default 4k + 3 prime.
+	private int defaultQuotient = 9967;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private double loadingFactor = 0.75;
+	
+	// Number of keys currently stored in the structure.
+	private int size;
+	
+	// Storage array of keys.
+	private long[] keys;
+	
+	// Storage array of values, parallel to keys.
+	private Object[] values;
+	
+	// The state of each location.
+	private byte[] states;
+	
+	/**
+	 * Constructs a LQHashedLongMap that can hold length keys.
+	 * @param length= The number of keys to be stored in the data structure.
+	 */
+	public LQHashedLongMap(int length) {
+		int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
+		N = LQHashed.fourKPlus3(length, pct);
+		keys = new long[N];
+		values = new Object[N];
+		states = new byte[N];
+		size = 0;
+	}
+	/**
+	 * Stores value under key, replacing the value if the key is already stored.
+	 * @param key = The key to store the value under.
+	 * @param value = The value to store.
+	 * @return True if the value was stored, false if the structure is full to loading factor.
+	 */
+	public boolean insert(long key, V value) {
+		int pk = pseudoKey(key);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		// The first location holding a deleted key, where a new key can go.
+		int free = -1;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			if (states[ip] == EMPTY) {
+				if (free == -1) {
+					free = ip;
+				}
+				break;
+			}
+			if (states[ip] == DELETED) {
+				if (free == -1) {
+					free = ip;
+				}
+			}
+			// If the key is already stored, replace its value.
+			else if (keys[ip] == key) {
+				values[ip] = value;
+				return true;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		if ((((double) size) / N) >= loadingFactor || free == -1) {
+			return false;
+		}
+		keys[free] = key;
+		values[free] = value;
+		states[free] = LIVE;
+		size++;
+		return true;
+	}
+	/**
+	 * Retrieves the value stored under targetKey.
+	 * @param targetKey = The key of the value we wish to retrieve.
+	 * @return The value, null if the key is not stored.
+	 */
+	@SuppressWarnings("unchecked")
+	public V fetch(long targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return null;
+		}
+		return (V) values[ip];
+	}
+	/**
+	 * Tests whether targetKey is stored in the structure.
+	 * @param targetKey = The key we are looking for.
+	 * @return True if the key is stored, false otherwise.
+	 */
+	public boolean containsKey(long targetKey) {
+		return find(targetKey) != -1;
+	}
+	/**
+	 * Replaces the value stored under targetKey.
+	 * @param targetKey = The key whose value we wish to update.
+	 * @param newValue = The value to replace the old value with.
+	 * @return True if the key was stored and its value replaced, false otherwise.
+	 */
+	public boolean update(long targetKey, V newValue) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		values[ip] = newValue;
+		return true;
+	}
+	/**
+	 * Deletes targetKey and its value from the structure.
+	 * @param targetKey = The key we wish to delete.
+	 * @return True if we deleted the key, false otherwise.
+	 */
+	public boolean delete(long targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		states[ip] = DELETED;
+		values[ip] = null;
+		size--;
+		return true;
+	}
+	/**
+	 * The number of keys currently stored in the structure.
+	 * @return The number of keys.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Probes for the location of targetKey.
+	 * @param targetKey = The key we are looking for.
+	 * @return The location of the key, -1 if it is not stored.
+	 */
+	private int find(long targetKey) {
+		int pk = pseudoKey(targetKey);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			if (states[ip] == EMPTY) {
+				break;
+			}
+			if (states[ip] == LIVE && keys[ip] == targetKey) {
+				return ip;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Converts a key into a non-negative pseudo-key by folding its two halves together and mixing the bits.
+	 * @param key = The key we wish to convert.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	private static int pseudoKey(long key) {
+		return LQHashedMap.mix((int) (key ^ (key >>> 32)));
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ * A key/value version of LQHashed. Keys and values are kept in their own parallel arrays, so a fetch returns the value
+ * directly instead of the whole record. Uses the same Linear Quotient collision algorithm as LQHashed: the home location
+ * is the pseudo-key modulo N, and the offset is the quotient pseudo-key / N or the default quotient.
+ * The pseudo-key is the key's hashCode, mixed and made non-negative. Inserting a key that is already stored replaces its value.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LQHashedMap<K, V> {
+	// The number of locations allocated to the primary storage arrays.
+	private int N;
+	
+	// A default 4k + 3 prime.
+	private int defaultQuotient = 9967;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private double loadingFactor = 0.75;
+	
+	// Number of keys currently stored in the structure.
+	private int size;
+	
+	// Dummy key. This indicates that there was once a key, but now it has been deleted.
+	private static final Object DELETED = new Object();
+	
+	// Storage array of keys.
+	private Object[] keys;
+	
+	// Storage array of values, parallel to keys.
+	private Object[] values;
+	
+	// The pseudo-key of the key stored at each location. Checked before calling equals.
+	private int[] pseudoKeys;
+	
+	/**
+	 * Constructs a LQHashedMap that can hold length keys.
+	 * @param length= The number of keys to be stored in the data structure.
+	 */
+	public LQHashedMap(int length) {
+		int pct = (int)((1.0 / loadingFactor - 1) * 100.0);
+		N = LQHashed.fourKPlus3(length, pct);
+		keys = new Object[N];
+		values = new Object[N];
+		pseudoKeys = new int[N];
+		size = 0;
+	}
+	/**
+	 * Stores value under key, replacing the value if the key is already stored.
+	 * @param key = The key to store the value under.
+	 * @param value = The value to store.
+	 * @return True if the value was stored, false if the structure is full to loading factor.
+	 */
+	public boolean insert(K key, V value) {
+		int pk = pseudoKey(key);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		// The first location holding a deleted key, where a new key can go.
+		int free = -1;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			// If we reached an empty location the key is not stored.
+			if (keys[ip] == null) {
+				if (free == -1) {
+					free = ip;
+				}
+				break;
+			}
+			if (keys[ip] == DELETED) {
+				if (free == -1) {
+					free = ip;
+				}
+			}
+			// If the key is already stored, replace its value.
+			else if (pseudoKeys[ip] == pk && keys[ip].equals(key)) {
+				values[ip] = value;
+				return true;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		// If the structure is full to loading factor, or there was nowhere to put the key.
+		if ((((double) size) / N) >= loadingFactor || free == -1) {
+			return false;
+		}
+		keys[free] = key;
+		values[free] = value;
+		pseudoKeys[free] = pk;
+		size++;
+		return true;
+	}
+	/**
+	 * Retrieves the value stored under targetKey.
+	 * @param targetKey = The key of the value we wish to retrieve.
+	 * @return The value, null if the key is not stored.
+	 */
+	@SuppressWarnings("unchecked")
+	public V fetch(K targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return null;
+		}
+		return (V) values[ip];
+	}
+	/**
+	 * Tests whether targetKey is stored in the structure.
+	 * @param targetKey = The key we are looking for.
+	 * @return True if the key is stored, false otherwise.
+	 */
+	public boolean containsKey(K targetKey) {
+		return find(targetKey) != -1;
+	}
+	/**
+	 * Replaces the value stored under targetKey.
+	 * @param targetKey = The key whose value we wish to update.
+	 * @param newValue = The value to replace the old value with.
+	 * @return True if the key was stored and its value replaced, false otherwise.
+	 */
+	public boolean update(K targetKey, V newValue) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		values[ip] = newValue;
+		return true;
+	}
+	/**
+	 * Deletes targetKey and its value from the structure.
+	 * @param targetKey = The key we wish to delete.
+	 * @return True if we deleted the key, false otherwise.
+	 */
+	public boolean delete(K targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		// Leave a deleted key behind so probes for other keys still get past this location.
+		keys[ip] = DELETED;
+		values[ip] = null;
+		size--;
+		return true;
+	}
+	/**
+	 * The number of keys currently stored in the structure.
+	 * @return The number of keys.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * Probes for the location of targetKey.
+	 * @param targetKey = The key we are looking for.
+	 * @return The location of the key, -1 if it is not stored.
+	 */
+	private int find(K targetKey) {
+		int pk = pseudoKey(targetKey);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			// If the key is not in the structure
+			if (keys[ip] == null) {
+				break;
+			}
+			// Only call equals when the pseudo-keys match. The deleted key never equals a real key.
+			if (pseudoKeys[ip] == pk && keys[ip] != DELETED && keys[ip].equals(targetKey)) {
+				return ip;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Converts a key into a non-negative pseudo-key by mixing the bits of its hashCode.
+	 * @param key = The key we wish to convert.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	private static int pseudoKey(Object key) {
+		return mix(key.hashCode());
+	}
+	/**
+	 * Spreads the bits of a hash code with the murmur3 finalizer and drops the sign bit.
+	 * Shared with the primitive versions of the map.
+	 * @param h = The hash code to mix.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h & Integer.MAX_VALUE;
+	}
+	/**
+	 * Outputs the keys and values in the structure to the console.
+	 */
+	public void output() {
+		for (int i = 0; i < N; i++) {
+			if (keys[i] != null && keys[i] != DELETED) {
+				System.out.println(keys[i] + " = " + values[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,441 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A file-backed version of LQHashed. The locations of the primary storage area and the UTF-8 bytes of the keys live in a
+ * memory-mapped file, so a restarted process can open the file and serve fetches immediately, without re-inserting,
+ * rehashing or creating String objects. Uses the same Linear Quotient collision algorithm as LQHashed.
+ * 
+ * The file is laid out as a fixed header, then N locations, then the key area:
+ * header (64 bytes) = magic, version, N, size, default quotient, tombstones, key area end, key area capacity, hash strategy seed,
+ * hash strategy name. Version 1 files have no seed, their name starts where the seed is now, and are opened with a seed of 0.
+ * location (8 bytes) = key offset + 1 (0 when empty, -1 when deleted), pseudo-key.
+ * key = byte length, UTF-8 bytes.
+ * The whole file is a single mapping, so N and the key area together must stay under 2 GB.
+ * The bytes of deleted and updated keys stay in the key area until an insert needs room. The insert then rebuilds the
+ * file: the live keys are copied into a new file with no deleted nodes and a compacted key area, doubled if the live keys
+ * would fill more than half of it, and the new file replaces the old one with an atomic rename. The same rebuild purges
+ * the deleted nodes once they leave too few empty locations for misses to stop quickly.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class MappedLQHashed {
+	// Identifies a MappedLQHashed file, "LQHM".
+	private static final int MAGIC = 0x4C51484D;
+	private static final int VERSION = 2;
+	
+	// The size of the header and where each field is stored in it.
+	private static final int HEADER_BYTES = 64;
+	private static final int N_AT = 8;
+	private static final int SIZE_AT = 12;
+	private static final int QUOTIENT_AT = 16;
+	private static final int TOMBSTONES_AT = 20;
+	private static final int KEY_END_AT = 24;
+	private static final int KEY_CAPACITY_AT = 28;
+	private static final int SEED_AT = 32;
+	private static final int STRATEGY_AT = 36;
+	// Where the name was stored in version 1 files, which had no seed.
+	private static final int V1_STRATEGY_AT = 32;
+	
+	// The size of a location, and the values that mark a location empty or deleted.
+	private static final int SLOT_BYTES = 8;
+	private static final int EMPTY = 0;
+	private static final int DELETED = -1;
+	
+	// Max number of nodes to store / Number of storage locations.
+	private static final double LOADING_FACTOR = 0.75;
+	
+	// When (nodes + deleted nodes) / N goes over this fraction, an insert first rebuilds the file without deleted nodes.
+	private static final double PURGE_OCCUPANCY = 0.9;
+	
+	// The file, kept to rebuild it, and the mapping of the whole file.
+	private File file;
+	private MappedByteBuffer buffer;
+	
+	// Copies of the header fields, written through to the header whenever they change.
+	private int N;
+	private int size;
+	private int defaultQuotient;
+	private int tombstones;
+	private int keyEnd;
+	private int keyCapacity;
+	
+	// Where the key area starts in the file.
+	private int keyBase;
+	
+	// The pre-processing algorithm that converts keys into pseudo-keys, recorded by name in the header.
+	private HashStrategy hashStrategy;
+	
+	/**
+	 * Creates a new file, replacing any file with the same name, and maps it.
+	 * @param file = The file to create.
+	 * @param length = The number of nodes to be stored in the data structure.
+	 * @param keyBytes = The number of bytes to reserve for the keys.
+	 * @param hashStrategy = The pre-processing algorithm that converts keys into pseudo-keys.
+	 * @throws IOException if the file cannot be created or mapped.
+	 */
+	public MappedLQHashed(File file, int length, int keyBytes, HashStrategy hashStrategy) throws IOException {
+		int pct = (int)((1.0 / LOADING_FACTOR - 1) * 100.0);
+		this.file = file;
+		this.hashStrategy = hashStrategy;
+		N = LQHashed.fourKPlus3(length, pct);
+		size = 0;
+		defaultQuotient = 9967;
+		tombstones = 0;
+		keyEnd = 0;
+		keyCapacity = keyBytes;
+		long fileBytes = HEADER_BYTES + (long) N * SLOT_BYTES + keyCapacity;
+		if (fileBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Mapped table would be " + fileBytes + " bytes, over the 2 GB limit of one mapping");
+		}
+		keyBase = HEADER_BYTES + N * SLOT_BYTES;
+		if (hashStrategy.name().getBytes("UTF-8").length > HEADER_BYTES - STRATEGY_AT - 1) {
+			throw new IllegalArgumentException("Hash strategy name too long: " + hashStrategy.name());
+		}
+		// Delete any old file so every location starts out empty.
+		file.delete();
+		map(file, (int) fileBytes);
+		writeHeader();
+	}
+	/**
+	 * Opens and maps a file created by MappedLQHashed. Nothing is rehashed, the structure is ready as soon as the file is mapped.
+	 * @param file = The file to open.
+	 * @throws IOException if the file cannot be read, or is not a MappedLQHashed file.
+	 */
+	public MappedLQHashed(File file) throws IOException {
+		this.file = file;
+		map(file, (int) file.length());
+		int version = buffer.getInt(4);
+		if (buffer.getInt(0) != MAGIC || (version != VERSION && version != 1)) {
+			throw new IOException(file + " is not a MappedLQHashed file");
+		}
+		N = buffer.getInt(N_AT);
+		size = buffer.getInt(SIZE_AT);
+		defaultQuotient = buffer.getInt(QUOTIENT_AT);
+		tombstones = buffer.getInt(TOMBSTONES_AT);
+		keyEnd = buffer.getInt(KEY_END_AT);
+		keyCapacity = buffer.getInt(KEY_CAPACITY_AT);
+		keyBase = HEADER_BYTES + N * SLOT_BYTES;
+		// The strategy is rebuilt with its recorded seed, or the pseudo-keys would not match the stored ones.
+		int seed = version == 1 ? 0 : buffer.getInt(SEED_AT);
+		int strategyAt = version == 1 ? V1_STRATEGY_AT : STRATEGY_AT;
+		byte[] name = new byte[buffer.get(strategyAt)];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = buffer.get(strategyAt + 1 + i);
+		}
+		hashStrategy = HashStrategy.forName(new String(name, "UTF-8"), seed);
+	}
+	/**
+	 * Maps the first bytes of a file for reading and writing. The mapping stays valid after the channel is closed.
+	 * @param file = The file to map.
+	 * @param bytes = The number of bytes to map.
+	 * @throws IOException if the file cannot be mapped.
+	 */
+	private void map(File file, int bytes) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+		}
+		finally {
+			raf.close();
+		}
+	}
+	/**
+	 * Writes the fixed fields and the counts into the header.
+	 * @throws IOException if the hash strategy name cannot be encoded.
+	 */
+	private void writeHeader() throws IOException {
+		byte[] name = hashStrategy.name().getBytes("UTF-8");
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(N_AT, N);
+		buffer.putInt(QUOTIENT_AT, defaultQuotient);
+		buffer.putInt(KEY_CAPACITY_AT, keyCapacity);
+		buffer.putInt(SEED_AT, hashStrategy.seed());
+		buffer.put(STRATEGY_AT, (byte) name.length);
+		for (int i = 0; i < name.length; i++) {
+			buffer.put(STRATEGY_AT + 1 + i, name[i]);
+		}
+		writeCounts();
+	}
+	/**
+	 * Attempts to insert newListing into the structure. If the key does not fit in the key area, or deleted nodes
+	 * have taken up too many of the empty locations, the file is rebuilt first.
+	 * @param newListing = The new listing to insert into the structure.
+	 * @return True if the listing was inserted, false if the structure is full to loading factor or the key area
+	 * cannot grow enough without going over the 2 GB limit.
+	 * @throws IOException if the file has to be rebuilt and the new file cannot be written.
+	 */
+	public boolean insert(String newListing) throws IOException {
+		int bytes = Utf8Keys.encodedLength(newListing);
+		// If the structure is full to loading factor, or there is no room for the key.
+		if ((((double) size) / N) >= LOADING_FACTOR || !makeRoom(bytes)) {
+			return false;
+		}
+		int pk = hashStrategy.hash(newListing);
+		int ip = findFree(pk);
+		if (ip == -1) {
+			return false;
+		}
+		if (buffer.getInt(HEADER_BYTES + ip * SLOT_BYTES) == DELETED) {
+			tombstones--;
+		}
+		// Append the key to the key area, then point the location at it.
+		buffer.putInt(keyBase + keyEnd, bytes);
+		Utf8Keys.write(newListing, buffer, keyBase + keyEnd + 4);
+		buffer.putInt(HEADER_BYTES + ip * SLOT_BYTES + 4, pk);
+		buffer.putInt(HEADER_BYTES + ip * SLOT_BYTES, keyEnd + 1);
+		keyEnd += 4 + bytes;
+		size++;
+		writeCounts();
+		return true;
+	}
+	/**
+	 * Probes for the first location that is empty or holds a deleted node.
+	 * @param pk = The pseudo-key of the node we are going to store.
+	 * @return The free location, -1 if every location is taken.
+	 */
+	private int findFree(int pk) {
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		int slot;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			slot = buffer.getInt(HEADER_BYTES + ip * SLOT_BYTES);
+			if (slot == EMPTY || slot == DELETED) {
+				return ip;
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Makes sure one more key of the given length can be inserted, rebuilding the file if the key area is full or
+	 * if deleted nodes have filled too many of the empty locations.
+	 * @param bytes = The encoded length of the key.
+	 * @return True if the key fits, false if the key area cannot grow enough without going over the 2 GB limit.
+	 * @throws IOException if the file has to be rebuilt and the new file cannot be written.
+	 */
+	private boolean makeRoom(int bytes) throws IOException {
+		boolean crowded = tombstones > 0 && size + tombstones + 1 > PURGE_OCCUPANCY * N;
+		boolean full = keyEnd + 4 + bytes > keyCapacity;
+		if (!crowded && !full) {
+			return true;
+		}
+		int capacity = keyCapacity;
+		if (full) {
+			// The bytes the key area needs once the dead keys are dropped.
+			long needed = liveKeyBytes() + 4 + bytes;
+			// Double the key area if the live keys would fill more than half of it, so rebuilds get further apart.
+			if (needed > capacity / 2) {
+				capacity = (int) Math.min(Math.max(2L * capacity, 2 * needed), (long) Integer.MAX_VALUE - keyBase);
+			}
+			if (needed > capacity) {
+				return false;
+			}
+		}
+		rebuild(capacity);
+		return true;
+	}
+	/**
+	 * Adds up the key area bytes used by the stored nodes, leaving out the keys of deleted and updated nodes.
+	 * @return The live key bytes, including each key's length.
+	 */
+	private long liveKeyBytes() {
+		long live = 0;
+		int slot;
+		for (int i = 0; i < N; i++) {
+			slot = buffer.getInt(HEADER_BYTES + i * SLOT_BYTES);
+			if (slot != EMPTY && slot != DELETED) {
+				live += 4 + buffer.getInt(keyBase + slot - 1);
+			}
+		}
+		return live;
+	}
+	/**
+	 * Rebuilds the file with the same N: every stored node is probed into a fresh set of locations with no deleted nodes,
+	 * and its key bytes are copied into a compacted key area. The new file is written next to the old one, forced,
+	 * and renamed over it, so the old file stays whole until the new one is complete.
+	 * @param newKeyCapacity = The number of bytes to reserve for the keys in the new file.
+	 * @throws IOException if the new file cannot be written or renamed.
+	 */
+	private void rebuild(int newKeyCapacity) throws IOException {
+		File rebuilt = new File(file.getPath() + ".rebuild");
+		rebuilt.delete();
+		// Kept to go back to the old file if the new one cannot be finished.
+		MappedByteBuffer old = buffer;
+		int oldKeyCapacity = keyCapacity;
+		int oldKeyEnd = keyEnd;
+		int oldTombstones = tombstones;
+		map(rebuilt, keyBase + newKeyCapacity);
+		try {
+			keyCapacity = newKeyCapacity;
+			keyEnd = 0;
+			tombstones = 0;
+			ByteBuffer from = old.duplicate();
+			ByteBuffer to = buffer.duplicate();
+			int slot, pk, ip, at;
+			for (int i = 0; i < N; i++) {
+				slot = old.getInt(HEADER_BYTES + i * SLOT_BYTES);
+				if (slot == EMPTY || slot == DELETED) {
+					continue;
+				}
+				pk = old.getInt(HEADER_BYTES + i * SLOT_BYTES + 4);
+				// Copy the key's length and bytes to the end of the new key area.
+				at = keyBase + slot - 1;
+				from.limit(at + 4 + old.getInt(at));
+				from.position(at);
+				to.position(keyBase + keyEnd);
+				to.put(from);
+				from.limit(from.capacity());
+				ip = findFree(pk);
+				buffer.putInt(HEADER_BYTES + ip * SLOT_BYTES + 4, pk);
+				buffer.putInt(HEADER_BYTES + ip * SLOT_BYTES, keyEnd + 1);
+				keyEnd = to.position() - keyBase;
+			}
+			writeHeader();
+			buffer.force();
+			Files.move(rebuilt.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e) {
+			buffer = old;
+			keyCapacity = oldKeyCapacity;
+			keyEnd = oldKeyEnd;
+			tombstones = oldTombstones;
+			rebuilt.delete();
+			throw e;
+		}
+	}
+	/**
+	 * Retrieves the node with key-field given by targetKey, comparing it against the stored bytes without creating a String.
+	 * @param targetKey = The key-field of the node we wish to retrieve.
+	 * @return The node whose key-field matches the targetKey (which equals targetKey), null if we couldn't find it.
+	 */
+	public String fetch(String targetKey) {
+		if (find(targetKey) == -1) {
+			return null;
+		}
+		return targetKey;
+	}
+	/**
+	 * Deletes the target item and inserts a new item to replace it. Room for the new key is made before the old one is
+	 * deleted, so a failed update leaves the old listing in place.
+	 * @param targetKey = The listing we wish to update
+	 * @param newListing = The listing to replace the targeted listing with
+	 * @return True if we deleted the old listing and inserted the new one, false otherwise.
+	 * @throws IOException if the file has to be rebuilt and the new file cannot be written.
+	 */
+	public boolean update(String targetKey, String newListing) throws IOException {
+		if (find(targetKey) == -1 || !makeRoom(Utf8Keys.encodedLength(newListing))) {
+			return false;
+		}
+		delete(targetKey);
+		return insert(newListing);
+	}
+	/**
+	 * Deletes the node given by the targetKey from the structure.
+	 * @param targetKey = The key of the node we wish to delete
+	 * @return True if we deleted the node, false otherwise.
+	 */
+	public boolean delete(String targetKey) {
+		int ip = find(targetKey);
+		if (ip == -1) {
+			return false;
+		}
+		buffer.putInt(HEADER_BYTES + ip * SLOT_BYTES, DELETED);
+		size--;
+		tombstones++;
+		writeCounts();
+		return true;
+	}
+	/**
+	 * Probes for the location of targetKey.
+	 * @param targetKey = The key we are looking for.
+	 * @return The location of the key, -1 if it is not stored.
+	 */
+	private int find(String targetKey) {
+		int pk = hashStrategy.hash(targetKey);
+		int pass = 0;
+		int q = pk / N;
+		int offset = q;
+		// Division hashing.
+		int ip = pk % N;
+		int slot, at;
+		if (q % N == 0) {
+			offset = defaultQuotient;
+		}
+		while (pass < N) {
+			at = HEADER_BYTES + ip * SLOT_BYTES;
+			slot = buffer.getInt(at);
+			// If the node is not in the structure
+			if (slot == EMPTY) {
+				break;
+			}
+			// Only compare the bytes when the pseudo-keys match.
+			if (slot != DELETED && buffer.getInt(at + 4) == pk) {
+				at = keyBase + slot - 1;
+				if (Utf8Keys.equals(buffer, at + 4, buffer.getInt(at), targetKey)) {
+					return ip;
+				}
+			}
+			ip = (ip + offset) % N;
+			pass++;
+		}
+		return -1;
+	}
+	/**
+	 * Writes the counts that change on insert and delete into the header.
+	 */
+	private void writeCounts() {
+		buffer.putInt(SIZE_AT, size);
+		buffer.putInt(TOMBSTONES_AT, tombstones);
+		buffer.putInt(KEY_END_AT, keyEnd);
+	}
+	/**
+	 * Forces every change out to the file.
+	 */
+	public void force() {
+		buffer.force();
+	}
+	/**
+	 * The number of nodes currently stored in the structure.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The number of deleted nodes left in the structure.
+	 * @return The number of deleted nodes.
+	 */
+	public int getTombstones() {
+		return tombstones;
+	}
+	/**
+	 * The number of bytes reserved for keys. Grows when a rebuild doubles the key area.
+	 * @return The key area capacity in bytes.
+	 */
+	public int getKeyCapacity() {
+		return keyCapacity;
+	}
+	/**
+	 * The pre-processing algorithm recorded in the file.
+	 * @return The hash strategy.
+	 */
+	public HashStrategy getHashStrategy() {
+		return hashStrategy;
+	}
+}
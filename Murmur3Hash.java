@@ -0,0 +1,85 @@
+/**
+ * A pre-processing algorithm based on the 32 bit MurmurHash3 mixer. Pairs of characters are treated as one 32 bit block,
+ * and every block is multiplied and rotated into the hash so each character affects every bit of the pseudo-key.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class Murmur3Hash implements HashStrategy {
+	// Mixing constants from MurmurHash3.
+	private static final int C1 = 0xcc9e2d51;
+	private static final int C2 = 0x1b873593;
+	
+	// The starting value of the hash.
+	private int seed;
+	
+	/**
+	 * Constructs a murmur3 strategy with a seed of 0.
+	 */
+	public Murmur3Hash() {
+		this(0);
+	}
+	/**
+	 * Constructs a murmur3 strategy with the given seed.
+	 * @param seed = The starting value of the hash.
+	 */
+	public Murmur3Hash(int seed) {
+		this.seed = seed;
+	}
+	/**
+	 * Converts a key into a pseudo-key by mixing two characters at a time.
+	 * @param key = the key we wish to convert into a pseudo-key.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	public int hash(String key) {
+		int h = seed;
+		int length = key.length();
+		int k;
+		int i = 0;
+		// Mix every whole block of two characters.
+		while (i + 1 < length) {
+			k = key.charAt(i) | (key.charAt(i + 1) << 16);
+			h ^= mixK(k);
+			h = Integer.rotateLeft(h, 13);
+			h = h * 5 + 0xe6546b64;
+			i += 2;
+		}
+		// Mix the last character if the length is odd.
+		if (i < length) {
+			h ^= mixK(key.charAt(i));
+		}
+		// Finalize, the length is counted in bytes like the original algorithm.
+		h ^= length * 2;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		// Drop the sign bit so the pseudo-key is non-negative.
+		return h & Integer.MAX_VALUE;
+	}
+	/**
+	 * Scrambles one block before it is mixed into the hash.
+	 * @param k = The block to scramble.
+	 * @return The scrambled block.
+	 */
+	private static int mixK(int k) {
+		k *= C1;
+		k = Integer.rotateLeft(k, 15);
+		k *= C2;
+		return k;
+	}
+	/**
+	 * The name of the algorithm.
+	 * @return "murmur3"
+	 */
+	public String name() {
+		return "murmur3";
+	}
+	/**
+	 * The starting value of the hash.
+	 * @return The seed.
+	 */
+	public int seed() {
+		return seed;
+	}
+}
@@ -0,0 +1,691 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.IntConsumer;
+
+/**
+ * A file-backed version of BPlusTree for int key sets larger than the heap, with the same insert, fetch, delete and
+ * update semantics as BinarySearchTree. Every node is a fixed-size page of the file, and pages are read and written
+ * through a BufferPool that keeps a configurable number of them in memory with CLOCK replacement. The hit rate and the
+ * read and write counts of the pool are exposed so the page budget can be tuned.
+ *
+ * The file is a sequence of PAGE_BYTES pages. Page 0 is the header, every other page is a leaf, an internal node or free:
+ * header = magic, version, page size, root page, height, size, page count, first free page.
+ * node = type, key count, next page (the next leaf, or the next free page), then the keys and either the counts of
+ * a leaf or the child pages of an internal node.
+ * Page 0 is never a node, so 0 also means "no page". Freed pages are chained into a free list and reused.
+ * Changes reach the file when their pages are evicted, and all of them, header included, on flush or close.
+ *
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PagedBTree implements Closeable {
+	// Identifies a PagedBTree file, "PBTR".
+	private static final int MAGIC = 0x50425452;
+	private static final int VERSION = 1;
+	
+	// The size of a page, a common file system block size.
+	static final int PAGE_BYTES = 4096;
+	// The fewest pages a pool may have, enough to pin a path from the root plus the siblings a split or merge touches.
+	static final int MIN_POOL_PAGES = 16;
+	
+	// Where each field is stored in the header page.
+	private static final int PAGE_BYTES_AT = 8;
+	private static final int ROOT_AT = 12;
+	private static final int HEIGHT_AT = 16;
+	private static final int SIZE_AT = 20;
+	private static final int PAGE_COUNT_AT = 24;
+	private static final int FREE_AT = 28;
+	
+	// Where each field is stored in a node page, and the page types.
+	private static final int TYPE_AT = 0;
+	private static final int COUNT_AT = 4;
+	private static final int NEXT_AT = 8;
+	private static final int KEYS_AT = 16;
+	private static final int LEAF = 1;
+	private static final int INTERNAL = 2;
+	private static final int FREE = 3;
+	
+	// A leaf has a key and a count per slot, an internal node a key and a child per slot plus one more child.
+	private static final int LEAF_SLOTS = (PAGE_BYTES - KEYS_AT) / 8;
+	private static final int INTERNAL_SLOTS = (PAGE_BYTES - KEYS_AT - 4) / 8;
+	private static final int COUNTS_AT = KEYS_AT + 4 * LEAF_SLOTS;
+	private static final int CHILDREN_AT = KEYS_AT + 4 * INTERNAL_SLOTS;
+	
+	// The most keys a node holds between operations, leaving one slot for an insert before a split.
+	static final int MAX_LEAF_KEYS = LEAF_SLOTS - 1;
+	static final int MAX_INTERNAL_KEYS = INTERNAL_SLOTS - 1;
+	// The fewest keys a node other than the root holds between operations. Two nodes at or below this always fit in one.
+	static final int MIN_KEYS = MAX_INTERNAL_KEYS / 2;
+	
+	// The open file and its pages in memory.
+	private RandomAccessFile raf;
+	private BufferPool pool;
+	
+	// Copies of the header fields, written to the header page on flush.
+	private int root;
+	private int height;
+	private int size;
+	private int pageCount;
+	private int freeHead;
+	
+	// Set by insert when a child splits: the key that separates the new right sibling from it.
+	private int splitKey;
+	
+	/**
+	 * Opens a PagedBTree file, creating an empty tree if the file does not exist or is empty.
+	 * @param file = The file holding the tree.
+	 * @param poolPages = The number of pages to keep in memory, at least MIN_POOL_PAGES.
+	 * @throws IOException if the file cannot be opened, or is not a PagedBTree file.
+	 */
+	public PagedBTree(File file, int poolPages) throws IOException {
+		if (poolPages < MIN_POOL_PAGES) {
+			throw new IllegalArgumentException("A buffer pool needs at least " + MIN_POOL_PAGES + " pages");
+		}
+		raf = new RandomAccessFile(file, "rw");
+		FileChannel channel = raf.getChannel();
+		pool = new BufferPool(channel, PAGE_BYTES, poolPages);
+		if (channel.size() == 0) {
+			// Page 0 is the header, page 1 the root, an empty leaf.
+			pageCount = 2;
+			root = 1;
+			height = 1;
+			size = 0;
+			freeHead = 0;
+			int f = pool.pinNew(root);
+			pool.frame(f).putInt(TYPE_AT, LEAF);
+			pool.unpin(f, true);
+			flush();
+			return;
+		}
+		int f = pool.pin(0);
+		ByteBuffer header = pool.frame(f);
+		boolean valid = header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(PAGE_BYTES_AT) == PAGE_BYTES;
+		root = header.getInt(ROOT_AT);
+		height = header.getInt(HEIGHT_AT);
+		size = header.getInt(SIZE_AT);
+		pageCount = header.getInt(PAGE_COUNT_AT);
+		freeHead = header.getInt(FREE_AT);
+		pool.unpin(f, false);
+		if (!valid) {
+			raf.close();
+			throw new IOException(file + " is not a PagedBTree file");
+		}
+	}
+	/**
+	 * The first index among the n keys of a page whose key is at least key, n if there is none. The same fixed-trip
+	 * binary search as BPlusTree, reading the keys straight from the page.
+	 * @param page = The page.
+	 * @param n = The number of keys in the page.
+	 * @param key = The key to search for.
+	 * @return The index of the first key >= key.
+	 */
+	private static int lowerBound(ByteBuffer page, int n, int key) {
+		if (n == 0) {
+			return 0;
+		}
+		int base = 0;
+		int len = n;
+		while (len > 1) {
+			int half = len >>> 1;
+			base = page.getInt(KEYS_AT + 4 * (base + half - 1)) < key ? base + half : base;
+			len -= half;
+		}
+		return page.getInt(KEYS_AT + 4 * base) < key ? base + 1 : base;
+	}
+	/**
+	 * The first index among the n keys of a page whose key is more than key, n if there is none.
+	 * @param page = The page.
+	 * @param n = The number of keys in the page.
+	 * @param key = The key to search for.
+	 * @return The index of the first key > key.
+	 */
+	private static int upperBound(ByteBuffer page, int n, int key) {
+		if (n == 0) {
+			return 0;
+		}
+		int base = 0;
+		int len = n;
+		while (len > 1) {
+			int half = len >>> 1;
+			base = page.getInt(KEYS_AT + 4 * (base + half - 1)) <= key ? base + half : base;
+			len -= half;
+		}
+		return page.getInt(KEYS_AT + 4 * base) <= key ? base + 1 : base;
+	}
+	/**
+	 * Copies ints between two areas of pages, which may be the same page and may overlap.
+	 * @param src = The page to copy from.
+	 * @param srcAt = The byte offset of the first int to copy.
+	 * @param dst = The page to copy to.
+	 * @param dstAt = The byte offset to copy it to.
+	 * @param ints = The number of ints to copy.
+	 */
+	private static void copy(ByteBuffer src, int srcAt, ByteBuffer dst, int dstAt, int ints) {
+		System.arraycopy(src.array(), srcAt, dst.array(), dstAt, 4 * ints);
+	}
+	/**
+	 * Takes a page off the free list, or adds a page to the end of the file if the list is empty.
+	 * @return The page number. The caller pins it with pinNew.
+	 * @throws IOException if the free list cannot be read.
+	 */
+	private int allocatePage() throws IOException {
+		if (freeHead == 0) {
+			return pageCount++;
+		}
+		int page = freeHead;
+		int f = pool.pin(page);
+		freeHead = pool.frame(f).getInt(NEXT_AT);
+		pool.unpin(f, false);
+		return page;
+	}
+	/**
+	 * Puts a page no longer in the tree onto the free list.
+	 * @param page = The page number, not pinned.
+	 * @throws IOException if a page has to be evicted and cannot be written.
+	 */
+	private void freePage(int page) throws IOException {
+		int f = pool.pinNew(page);
+		pool.frame(f).putInt(TYPE_AT, FREE);
+		pool.frame(f).putInt(NEXT_AT, freeHead);
+		pool.unpin(f, true);
+		freeHead = page;
+	}
+	/**
+	 * A method which inserts a value into the tree.
+	 * @param value = The value we are going to insert
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	public void insert(int value) throws IOException {
+		int sibling = insert(root, value);
+		// The root split, so the tree grows a level.
+		if (sibling != 0) {
+			int newRoot = allocatePage();
+			int f = pool.pinNew(newRoot);
+			ByteBuffer b = pool.frame(f);
+			b.putInt(TYPE_AT, INTERNAL);
+			b.putInt(COUNT_AT, 1);
+			b.putInt(KEYS_AT, splitKey);
+			b.putInt(CHILDREN_AT, root);
+			b.putInt(CHILDREN_AT + 4, sibling);
+			pool.unpin(f, true);
+			root = newRoot;
+			height++;
+		}
+		size++;
+	}
+	/**
+	 * Inserts a value into a subtree. The page stays pinned while its child is updated.
+	 * @param page = The root page of the subtree.
+	 * @param value = The value to insert.
+	 * @return The new right sibling page if the page split, with its separating key in splitKey, 0 otherwise.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	private int insert(int page, int value) throws IOException {
+		int f = pool.pin(page);
+		ByteBuffer b = pool.frame(f);
+		int n = b.getInt(COUNT_AT);
+		int sibling = 0;
+		if (b.getInt(TYPE_AT) == LEAF) {
+			int i = lowerBound(b, n, value);
+			// The value is already here, count it again.
+			if (i < n && b.getInt(KEYS_AT + 4 * i) == value) {
+				b.putInt(COUNTS_AT + 4 * i, b.getInt(COUNTS_AT + 4 * i) + 1);
+				pool.unpin(f, true);
+				return 0;
+			}
+			// Shift the larger keys up one slot and put the value in the gap.
+			copy(b, KEYS_AT + 4 * i, b, KEYS_AT + 4 * (i + 1), n - i);
+			copy(b, COUNTS_AT + 4 * i, b, COUNTS_AT + 4 * (i + 1), n - i);
+			b.putInt(KEYS_AT + 4 * i, value);
+			b.putInt(COUNTS_AT + 4 * i, 1);
+			b.putInt(COUNT_AT, ++n);
+			if (n > MAX_LEAF_KEYS) {
+				sibling = splitLeaf(b);
+			}
+			pool.unpin(f, true);
+			return sibling;
+		}
+		int i = upperBound(b, n, value);
+		int childSibling = insert(b.getInt(CHILDREN_AT + 4 * i), value);
+		if (childSibling == 0) {
+			pool.unpin(f, false);
+			return 0;
+		}
+		// The child split, add its new sibling to the right of it.
+		copy(b, KEYS_AT + 4 * i, b, KEYS_AT + 4 * (i + 1), n - i);
+		copy(b, CHILDREN_AT + 4 * (i + 1), b, CHILDREN_AT + 4 * (i + 2), n - i);
+		b.putInt(KEYS_AT + 4 * i, splitKey);
+		b.putInt(CHILDREN_AT + 4 * (i + 1), childSibling);
+		b.putInt(COUNT_AT, ++n);
+		if (n > MAX_INTERNAL_KEYS) {
+			sibling = splitInternal(b);
+		}
+		pool.unpin(f, true);
+		return sibling;
+	}
+	/**
+	 * Moves the upper half of an overfull leaf into a new leaf linked after it.
+	 * @param leaf = The pinned leaf to split.
+	 * @return The new leaf page, with its smallest key in splitKey.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	private int splitLeaf(ByteBuffer leaf) throws IOException {
+		int right = allocatePage();
+		int f = pool.pinNew(right);
+		ByteBuffer r = pool.frame(f);
+		int n = leaf.getInt(COUNT_AT);
+		int keep = n / 2;
+		copy(leaf, KEYS_AT + 4 * keep, r, KEYS_AT, n - keep);
+		copy(leaf, COUNTS_AT + 4 * keep, r, COUNTS_AT, n - keep);
+		r.putInt(TYPE_AT, LEAF);
+		r.putInt(COUNT_AT, n - keep);
+		leaf.putInt(COUNT_AT, keep);
+		// Link the new leaf in after the old one.
+		r.putInt(NEXT_AT, leaf.getInt(NEXT_AT));
+		leaf.putInt(NEXT_AT, right);
+		splitKey = r.getInt(KEYS_AT);
+		pool.unpin(f, true);
+		return right;
+	}
+	/**
+	 * Moves the upper half of an overfull internal node into a new node. The middle key moves up to the parent.
+	 * @param node = The pinned node to split.
+	 * @return The new node page, with the key that separates it from node in splitKey.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	private int splitInternal(ByteBuffer node) throws IOException {
+		int right = allocatePage();
+		int f = pool.pinNew(right);
+		ByteBuffer r = pool.frame(f);
+		int n = node.getInt(COUNT_AT);
+		int mid = n / 2;
+		splitKey = node.getInt(KEYS_AT + 4 * mid);
+		copy(node, KEYS_AT + 4 * (mid + 1), r, KEYS_AT, n - mid - 1);
+		copy(node, CHILDREN_AT + 4 * (mid + 1), r, CHILDREN_AT, n - mid);
+		r.putInt(TYPE_AT, INTERNAL);
+		r.putInt(COUNT_AT, n - mid - 1);
+		node.putInt(COUNT_AT, mid);
+		pool.unpin(f, true);
+		return right;
+	}
+	/**
+	 * A method which fetches a value from the tree.
+	 * @param target = The value we are trying to fetch
+	 * @return The value if it is in the tree, null otherwise.
+	 * @throws IOException if a page cannot be read.
+	 */
+	public Integer fetch(int target) throws IOException {
+		int page = root;
+		while (true) {
+			int f = pool.pin(page);
+			ByteBuffer b = pool.frame(f);
+			int n = b.getInt(COUNT_AT);
+			if (b.getInt(TYPE_AT) == LEAF) {
+				int i = lowerBound(b, n, target);
+				boolean found = i < n && b.getInt(KEYS_AT + 4 * i) == target;
+				pool.unpin(f, false);
+				return found ? Integer.valueOf(target) : null;
+			}
+			page = b.getInt(CHILDREN_AT + 4 * upperBound(b, n, target));
+			pool.unpin(f, false);
+		}
+	}
+	/**
+	 * A method which deletes one occurrence of a value from the tree. Pages left with fewer than MIN_KEYS keys borrow a
+	 * key from a sibling, or merge with it when the sibling has none to spare. Merged pages go onto the free list.
+	 * @param target = The value we are trying to delete
+	 * @return true if we deleted the value, false otherwise.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	public boolean delete(int target) throws IOException {
+		if (delete(root, target) < 0) {
+			return false;
+		}
+		// The root ran out of keys, its only child becomes the root.
+		int f = pool.pin(root);
+		ByteBuffer b = pool.frame(f);
+		int only = b.getInt(TYPE_AT) == INTERNAL && b.getInt(COUNT_AT) == 0 ? b.getInt(CHILDREN_AT) : 0;
+		pool.unpin(f, false);
+		if (only != 0) {
+			freePage(root);
+			root = only;
+			height--;
+		}
+		size--;
+		return true;
+	}
+	/**
+	 * Deletes one occurrence of a value from a subtree, fixing any child that underflows on the way back up.
+	 * @param page = The root page of the subtree.
+	 * @param target = The value to delete.
+	 * @return The number of keys left in the page, -1 if the value was not found.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	private int delete(int page, int target) throws IOException {
+		int f = pool.pin(page);
+		ByteBuffer b = pool.frame(f);
+		int n = b.getInt(COUNT_AT);
+		if (b.getInt(TYPE_AT) == LEAF) {
+			int i = lowerBound(b, n, target);
+			if (i == n || b.getInt(KEYS_AT + 4 * i) != target) {
+				pool.unpin(f, false);
+				return -1;
+			}
+			int count = b.getInt(COUNTS_AT + 4 * i) - 1;
+			// Other copies remain, just count one fewer.
+			if (count > 0) {
+				b.putInt(COUNTS_AT + 4 * i, count);
+			}
+			else {
+				copy(b, KEYS_AT + 4 * (i + 1), b, KEYS_AT + 4 * i, n - i - 1);
+				copy(b, COUNTS_AT + 4 * (i + 1), b, COUNTS_AT + 4 * i, n - i - 1);
+				b.putInt(COUNT_AT, --n);
+			}
+			pool.unpin(f, true);
+			return n;
+		}
+		int i = upperBound(b, n, target);
+		int childKeys = delete(b.getInt(CHILDREN_AT + 4 * i), target);
+		if (childKeys < 0) {
+			pool.unpin(f, false);
+			return -1;
+		}
+		if (childKeys >= MIN_KEYS) {
+			pool.unpin(f, false);
+			return n;
+		}
+		fixUnderflow(b, i);
+		n = b.getInt(COUNT_AT);
+		pool.unpin(f, true);
+		return n;
+	}
+	/**
+	 * Brings a child that fell below MIN_KEYS back up, by borrowing a key from a sibling that has one to spare or by
+	 * merging with a sibling.
+	 * @param parent = The pinned parent of the child.
+	 * @param i = The index of the child in the parent.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	private void fixUnderflow(ByteBuffer parent, int i) throws IOException {
+		int n = parent.getInt(COUNT_AT);
+		int childPage = parent.getInt(CHILDREN_AT + 4 * i);
+		int leftPage = i > 0 ? parent.getInt(CHILDREN_AT + 4 * (i - 1)) : 0;
+		int rightPage = i < n ? parent.getInt(CHILDREN_AT + 4 * (i + 1)) : 0;
+		int cf = pool.pin(childPage);
+		int lf = leftPage != 0 ? pool.pin(leftPage) : -1;
+		int rf = rightPage != 0 ? pool.pin(rightPage) : -1;
+		ByteBuffer child = pool.frame(cf);
+		int freed = 0;
+		if (lf != -1 && pool.frame(lf).getInt(COUNT_AT) > MIN_KEYS) {
+			borrowFromLeft(parent, i, child, pool.frame(lf));
+		}
+		else if (rf != -1 && pool.frame(rf).getInt(COUNT_AT) > MIN_KEYS) {
+			borrowFromRight(parent, i, child, pool.frame(rf));
+		}
+		// Merging always keeps the left page, so the first leaf is never freed.
+		else if (lf != -1) {
+			merge(parent, i - 1, pool.frame(lf), child);
+			freed = childPage;
+		}
+		else {
+			merge(parent, i, child, pool.frame(rf));
+			freed = rightPage;
+		}
+		pool.unpin(cf, true);
+		if (lf != -1) {
+			pool.unpin(lf, true);
+		}
+		if (rf != -1) {
+			pool.unpin(rf, true);
+		}
+		if (freed != 0) {
+			freePage(freed);
+		}
+	}
+	/**
+	 * Moves the largest key of the left sibling into a child.
+	 * @param parent = The parent of the child.
+	 * @param i = The index of the child in the parent, at least 1.
+	 * @param child = The child.
+	 * @param left = Its left sibling.
+	 */
+	private void borrowFromLeft(ByteBuffer parent, int i, ByteBuffer child, ByteBuffer left) {
+		int cn = child.getInt(COUNT_AT);
+		int ln = left.getInt(COUNT_AT);
+		copy(child, KEYS_AT, child, KEYS_AT + 4, cn);
+		if (child.getInt(TYPE_AT) == LEAF) {
+			copy(child, COUNTS_AT, child, COUNTS_AT + 4, cn);
+			child.putInt(KEYS_AT, left.getInt(KEYS_AT + 4 * (ln - 1)));
+			child.putInt(COUNTS_AT, left.getInt(COUNTS_AT + 4 * (ln - 1)));
+			// The child's smallest key changed.
+			parent.putInt(KEYS_AT + 4 * (i - 1), child.getInt(KEYS_AT));
+		}
+		else {
+			copy(child, CHILDREN_AT, child, CHILDREN_AT + 4, cn + 1);
+			// The separator comes down and the left sibling's largest key goes up in its place.
+			child.putInt(KEYS_AT, parent.getInt(KEYS_AT + 4 * (i - 1)));
+			child.putInt(CHILDREN_AT, left.getInt(CHILDREN_AT + 4 * ln));
+			parent.putInt(KEYS_AT + 4 * (i - 1), left.getInt(KEYS_AT + 4 * (ln - 1)));
+		}
+		child.putInt(COUNT_AT, cn + 1);
+		left.putInt(COUNT_AT, ln - 1);
+	}
+	/**
+	 * Moves the smallest key of the right sibling into a child.
+	 * @param parent = The parent of the child.
+	 * @param i = The index of the child in the parent, less than the parent's key count.
+	 * @param child = The child.
+	 * @param right = Its right sibling.
+	 */
+	private void borrowFromRight(ByteBuffer parent, int i, ByteBuffer child, ByteBuffer right) {
+		int cn = child.getInt(COUNT_AT);
+		int rn = right.getInt(COUNT_AT);
+		if (child.getInt(TYPE_AT) == LEAF) {
+			child.putInt(KEYS_AT + 4 * cn, right.getInt(KEYS_AT));
+			child.putInt(COUNTS_AT + 4 * cn, right.getInt(COUNTS_AT));
+			copy(right, KEYS_AT + 4, right, KEYS_AT, rn - 1);
+			copy(right, COUNTS_AT + 4, right, COUNTS_AT, rn - 1);
+			// The right sibling's smallest key changed.
+			parent.putInt(KEYS_AT + 4 * i, right.getInt(KEYS_AT));
+		}
+		else {
+			// The separator comes down and the right sibling's smallest key goes up in its place.
+			child.putInt(KEYS_AT + 4 * cn, parent.getInt(KEYS_AT + 4 * i));
+			child.putInt(CHILDREN_AT + 4 * (cn + 1), right.getInt(CHILDREN_AT));
+			parent.putInt(KEYS_AT + 4 * i, right.getInt(KEYS_AT));
+			copy(right, KEYS_AT + 4, right, KEYS_AT, rn - 1);
+			copy(right, CHILDREN_AT + 4, right, CHILDREN_AT, rn);
+		}
+		child.putInt(COUNT_AT, cn + 1);
+		right.putInt(COUNT_AT, rn - 1);
+	}
+	/**
+	 * Merges a page with its right sibling and removes the sibling from the parent. The caller frees the sibling's page.
+	 * @param parent = The parent of the two pages.
+	 * @param i = The index of the left one of the two in the parent.
+	 * @param left = The left page, which keeps the merged keys.
+	 * @param right = The right page.
+	 */
+	private void merge(ByteBuffer parent, int i, ByteBuffer left, ByteBuffer right) {
+		int ln = left.getInt(COUNT_AT);
+		int rn = right.getInt(COUNT_AT);
+		if (left.getInt(TYPE_AT) == LEAF) {
+			copy(right, KEYS_AT, left, KEYS_AT + 4 * ln, rn);
+			copy(right, COUNTS_AT, left, COUNTS_AT + 4 * ln, rn);
+			left.putInt(COUNT_AT, ln + rn);
+			// Unlink the right leaf.
+			left.putInt(NEXT_AT, right.getInt(NEXT_AT));
+		}
+		else {
+			// The separator comes down between the two halves.
+			left.putInt(KEYS_AT + 4 * ln, parent.getInt(KEYS_AT + 4 * i));
+			copy(right, KEYS_AT, left, KEYS_AT + 4 * (ln + 1), rn);
+			copy(right, CHILDREN_AT, left, CHILDREN_AT + 4 * (ln + 1), rn + 1);
+			left.putInt(COUNT_AT, ln + rn + 1);
+		}
+		// Remove the separator and the right page from the parent.
+		int n = parent.getInt(COUNT_AT);
+		copy(parent, KEYS_AT + 4 * (i + 1), parent, KEYS_AT + 4 * i, n - i - 1);
+		copy(parent, CHILDREN_AT + 4 * (i + 2), parent, CHILDREN_AT + 4 * (i + 1), n - i - 1);
+		parent.putInt(COUNT_AT, n - 1);
+	}
+	/**
+	 * A method to update a value. This deletes the old value and inserts the new one.
+	 * @param target = The value we wish to update.
+	 * @param newValue = The value we wish to replace it with.
+	 * @return True if we have both deleted the old value and inserted the new one, false otherwise.
+	 * @throws IOException if a page cannot be read or written.
+	 */
+	public boolean update(int target, int newValue) throws IOException {
+		if (!delete(target)) {
+			return false;
+		}
+		insert(newValue);
+		return true;
+	}
+	/**
+	 * Visits the values between lo and hi in ascending order, repeats included, by descending to the leaf holding lo
+	 * once and then following the leaf links. Only one page is pinned at a time.
+	 * @param lo = The smallest value to visit.
+	 * @param hi = The largest value to visit.
+	 * @param visitor = The visitor each value is passed to.
+	 * @throws IOException if a page cannot be read.
+	 */
+	public void scan(int lo, int hi, IntConsumer visitor) throws IOException {
+		if (lo > hi) {
+			return;
+		}
+		// Descend to the leaf that holds lo.
+		int page = root;
+		for (int level = 1; level < height; level++) {
+			int f = pool.pin(page);
+			ByteBuffer b = pool.frame(f);
+			int next = b.getInt(CHILDREN_AT + 4 * upperBound(b, b.getInt(COUNT_AT), lo));
+			pool.unpin(f, false);
+			page = next;
+		}
+		int f = pool.pin(page);
+		ByteBuffer b = pool.frame(f);
+		int i = lowerBound(b, b.getInt(COUNT_AT), lo);
+		while (true) {
+			int n = b.getInt(COUNT_AT);
+			for (; i < n; i++) {
+				int key = b.getInt(KEYS_AT + 4 * i);
+				if (key > hi) {
+					pool.unpin(f, false);
+					return;
+				}
+				for (int c = b.getInt(COUNTS_AT + 4 * i); c > 0; c--) {
+					visitor.accept(key);
+				}
+			}
+			int next = b.getInt(NEXT_AT);
+			pool.unpin(f, false);
+			if (next == 0) {
+				return;
+			}
+			f = pool.pin(next);
+			b = pool.frame(f);
+			i = 0;
+		}
+	}
+	/**
+	 * A method to output every value in ascending order, by walking the linked leaves from the first one.
+	 * @throws IOException if a page cannot be read.
+	 */
+	public void traverseLNR() throws IOException {
+		scan(Integer.MIN_VALUE, Integer.MAX_VALUE, System.out::println);
+	}
+	/**
+	 * Writes the header and every changed page to the file and forces it to disk.
+	 * @throws IOException if a page cannot be written.
+	 */
+	public void flush() throws IOException {
+		int f = pool.pin(0);
+		ByteBuffer header = pool.frame(f);
+		header.putInt(0, MAGIC);
+		header.putInt(4, VERSION);
+		header.putInt(PAGE_BYTES_AT, PAGE_BYTES);
+		header.putInt(ROOT_AT, root);
+		header.putInt(HEIGHT_AT, height);
+		header.putInt(SIZE_AT, size);
+		header.putInt(PAGE_COUNT_AT, pageCount);
+		header.putInt(FREE_AT, freeHead);
+		pool.unpin(f, true);
+		pool.flush();
+		raf.getChannel().force(false);
+	}
+	/**
+	 * Flushes the tree and closes the file.
+	 * @throws IOException if a page cannot be written.
+	 */
+	public void close() throws IOException {
+		try {
+			flush();
+		}
+		finally {
+			raf.close();
+		}
+	}
+	/**
+	 * The number of values in the tree, counting repeats.
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The height of the tree.
+	 * @return The number of levels, 1 while the whole tree is a single leaf.
+	 */
+	public int height() {
+		return height;
+	}
+	/**
+	 * The number of pages in the file, header and free pages included.
+	 * @return The page count.
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+	/**
+	 * The number of pages the buffer pool keeps in memory.
+	 * @return The page budget.
+	 */
+	public int getPoolPages() {
+		return pool.capacity();
+	}
+	/**
+	 * The number of page accesses served from the buffer pool.
+	 * @return The page hits.
+	 */
+	public long getPageHits() {
+		return pool.getHits();
+	}
+	/**
+	 * The number of pages read from the file.
+	 * @return The page reads.
+	 */
+	public long getPageReads() {
+		return pool.getReads();
+	}
+	/**
+	 * The number of pages written to the file.
+	 * @return The page writes.
+	 */
+	public long getPageWrites() {
+		return pool.getWrites();
+	}
+	/**
+	 * The fraction of page accesses served from the buffer pool.
+	 * @return The hit rate, between 0 and 1, or 0 if no page has been accessed.
+	 */
+	public double getHitRate() {
+		long accesses = pool.getHits() + pool.getReads();
+		return accesses == 0 ? 0 : (double) pool.getHits() / accesses;
+	}
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * A persistent version of BinarySearchTree with the same insert, fetch, delete and update methods. Nodes are never
+ * changed once built: an update copies only the nodes on the path from the root to the change, shares every other
+ * node with the previous version, and publishes the new root with a compare-and-set. A reader takes a Snapshot, which
+ * is just a root reference, and can fetch from it or iterate it without locks for as long as it likes while writers
+ * carry on. Each version is kept balanced with the same rotations as AVLTree, so an update copies O(log n) nodes.
+ * Like BinarySearchTree, a value equal to one already stored is inserted on its right.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PersistentBinarySearchTree {
+	// The root of the current version, null while the tree is empty.
+	private final AtomicReference<Node> root = new AtomicReference<Node>();
+	
+	/*
+	 * An immutable node. Stores the height and size of its subtree, a leaf has height 1 and size 1.
+	 */
+	private static final class Node {
+		private final int data;
+		private final Node left;
+		private final Node right;
+		private final int height;
+		private final int size;
+	
+		private Node(int data, Node left, Node right) {
+			this.data = data;
+			this.left = left;
+			this.right = right;
+			this.height = 1 + Math.max(height(left), height(right));
+			this.size = 1 + size(left) + size(right);
+		}
+	}
+	
+	/**
+	 * An immutable version of the tree. Taking one costs a single read, and nothing a writer does afterwards changes it.
+	 */
+	public static final class Snapshot {
+		// The root of this version.
+		private final Node root;
+	
+		private Snapshot(Node root) {
+			this.root = root;
+		}
+		/**
+		 * Fetches a value from this version.
+		 * @param target The value we are trying to fetch
+		 * @return The value if it is in this version, null otherwise.
+		 */
+		public Integer fetch(int target) {
+			return PersistentBinarySearchTree.fetch(root, target);
+		}
+		/**
+		 * The number of values in this version.
+		 * @return The number of values.
+		 */
+		public int size() {
+			return PersistentBinarySearchTree.size(root);
+		}
+		/**
+		 * The height of this version.
+		 * @return The number of nodes on the longest path from the root to a leaf, 0 if it is empty.
+		 */
+		public int height() {
+			return PersistentBinarySearchTree.height(root);
+		}
+		/**
+		 * A lazy iterator over the values of this version in ascending order, using an explicit stack.
+		 * @return An iterator over the values.
+		 */
+		public PrimitiveIterator.OfInt iterator() {
+			return new PrimitiveIterator.OfInt() {
+				// The nodes whose value and right subtree are still to be visited, the next one on top.
+				private final ArrayDeque<Node> stack = new ArrayDeque<Node>();
+				{
+					pushLeft(root);
+				}
+				private void pushLeft(Node node) {
+					while (node != null) {
+						stack.push(node);
+						node = node.left;
+					}
+				}
+				public boolean hasNext() {
+					return !stack.isEmpty();
+				}
+				public int nextInt() {
+					if (stack.isEmpty()) {
+						throw new NoSuchElementException();
+					}
+					Node node = stack.pop();
+					pushLeft(node.right);
+					return node.data;
+				}
+			};
+		}
+		/**
+		 * Visits the values of this version in ascending order.
+		 * @param visitor The visitor each value is passed to.
+		 */
+		public void traverse(IntConsumer visitor) {
+			PrimitiveIterator.OfInt it = iterator();
+			while (it.hasNext()) {
+				visitor.accept(it.nextInt());
+			}
+		}
+	}
+	
+	/**
+	 * Constructs a new empty tree.
+	 */
+	public PersistentBinarySearchTree() {
+	}
+	/**
+	 * Takes a snapshot of the current version.
+	 * @return The current version.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(root.get());
+	}
+	/**
+	 * A method which inserts a value into the tree, copying the path to it.
+	 * @param value The data value for the node we are going to insert
+	 */
+	public void insert(int value) {
+		while (true) {
+			Node current = root.get();
+			// Publish the new version unless another writer published one first, in which case build on theirs.
+			if (root.compareAndSet(current, insert(current, value))) {
+				return;
+			}
+		}
+	}
+	/**
+	 * A method which fetches a value from the current version.
+	 * @param target The data value of the node we are trying to fetch
+	 * @return The value if it is in the tree, null otherwise.
+	 */
+	public Integer fetch(int target) {
+		return fetch(root.get(), target);
+	}
+	/**
+	 * A method which deletes a value from the tree, copying the path to it.
+	 * @param target The data value of the node we are trying to delete
+	 * @return true if we deleted the node, false otherwise.
+	 */
+	public boolean delete(int target) {
+		while (true) {
+			Node current = root.get();
+			// If the value isn't in the tree there is nothing to delete.
+			if (fetch(current, target) == null) {
+				return false;
+			}
+			if (root.compareAndSet(current, delete(current, target))) {
+				return true;
+			}
+		}
+	}
+	/**
+	 * A method to update a node. This deletes the old value and inserts the new one, and publishes both changes as
+	 * one version, so no reader sees the tree with the old value gone and the new one missing.
+	 * @param target The value of the node we wish to update.
+	 * @param newValue The value we wish to replace the old node with.
+	 * @return True if we have both deleted the old node and inserted the new one, false otherwise.
+	 */
+	public boolean update(int target, int newValue) {
+		while (true) {
+			Node current = root.get();
+			if (fetch(current, target) == null) {
+				return false;
+			}
+			if (root.compareAndSet(current, insert(delete(current, target), newValue))) {
+				return true;
+			}
+		}
+	}
+	/**
+	 * The number of values in the current version.
+	 * @return The number of values.
+	 */
+	public int size() {
+		return size(root.get());
+	}
+	/**
+	 * Walks down a version to a value.
+	 * @param node The root of the version.
+	 * @param target The value to find.
+	 * @return The value if it is in the version, null otherwise.
+	 */
+	private static Integer fetch(Node node, int target) {
+		while (node != null) {
+			if (target == node.data) {
+				return node.data;
+			}
+			node = target < node.data ? node.left : node.right;
+		}
+		return null;
+	}
+	/**
+	 * Builds a copy of a subtree with a value inserted.
+	 * @param node The root of the subtree, unchanged.
+	 * @param value The value to insert.
+	 * @return The root of the new subtree.
+	 */
+	private static Node insert(Node node, int value) {
+		if (node == null) {
+			return new Node(value, null, null);
+		}
+		// Smaller values go on the left, equal and larger values on the right.
+		if (value < node.data) {
+			return balance(node.data, insert(node.left, value), node.right);
+		}
+		return balance(node.data, node.left, insert(node.right, value));
+	}
+	/**
+	 * Builds a copy of a subtree that contains a value, with the value deleted.
+	 * @param node The root of the subtree, unchanged.
+	 * @param target The value to delete.
+	 * @return The root of the new subtree.
+	 */
+	private static Node delete(Node node, int target) {
+		if (target < node.data) {
+			return balance(node.data, delete(node.left, target), node.right);
+		}
+		if (target > node.data) {
+			return balance(node.data, node.left, delete(node.right, target));
+		}
+		// Case 1 and 2: no children or one child, the child (or null) takes its place.
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		// Case 3: two children. The largest value in the left subtree takes its place.
+		Node largest = node.left;
+		while (largest.right != null) {
+			largest = largest.right;
+		}
+		return balance(largest.data, deleteLargest(node.left), node.right);
+	}
+	/**
+	 * Builds a copy of a subtree with its largest node deleted.
+	 * @param node The root of the subtree, unchanged.
+	 * @return The root of the new subtree.
+	 */
+	private static Node deleteLargest(Node node) {
+		if (node.right == null) {
+			return node.left;
+		}
+		return balance(node.data, node.left, deleteLargest(node.right));
+	}
+	/**
+	 * Builds a node from a value and two subtrees, rotating if the subtrees differ in height by more than one.
+	 * The rotations are the ones AVLTree does in place, done here by building new nodes.
+	 * @param data The value of the node.
+	 * @param left The left subtree.
+	 * @param right The right subtree.
+	 * @return The root of the balanced subtree.
+	 */
+	private static Node balance(int data, Node left, Node right) {
+		int balance = height(left) - height(right);
+		// Left heavy.
+		if (balance > 1) {
+			// Left-left case: a single right rotation.
+			if (height(left.left) >= height(left.right)) {
+				return new Node(left.data, left.left, new Node(data, left.right, right));
+			}
+			// Left-right case: the left child's right child comes up.
+			Node pivot = left.right;
+			return new Node(pivot.data, new Node(left.data, left.left, pivot.left), new Node(data, pivot.right, right));
+		}
+		// Right heavy.
+		if (balance < -1) {
+			// Right-right case: a single left rotation.
+			if (height(right.right) >= height(right.left)) {
+				return new Node(right.data, new Node(data, left, right.left), right.right);
+			}
+			// Right-left case: the right child's left child comes up.
+			Node pivot = right.left;
+			return new Node(pivot.data, new Node(data, left, pivot.left), new Node(right.data, pivot.right, right.right));
+		}
+		return new Node(data, left, right);
+	}
+	/**
+	 * The height of a subtree.
+	 * @param node The root of the subtree.
+	 * @return The height, 0 for an empty subtree.
+	 */
+	private static int height(Node node) {
+		return node == null ? 0 : node.height;
+	}
+	/**
+	 * The size of a subtree.
+	 * @param node The root of the subtree.
+	 * @return The number of nodes, 0 for an empty subtree.
+	 */
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+}
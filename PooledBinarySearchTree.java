@@ -0,0 +1,267 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An int-keyed version of BinarySearchTree that keeps its nodes in parallel int arrays instead of TreeNode objects.
+ * A node is an index: keys[i] is its value, left[i] and right[i] are the indices of its children, NIL for none.
+ * Deleted nodes go onto a free list, chained through left[], and are reused by later inserts. There is no boxing,
+ * nothing is allocated per operation (the arrays only grow when every node is in use), and the garbage collector
+ * sees three arrays instead of one object per key.
+ * Uses the same insertion and three-case deletion algorithms as BinarySearchTree.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PooledBinarySearchTree {
+	// The index that means "no node".
+	private static final int NIL = -1;
+	
+	// The value, left child and right child of each node.
+	private int[] keys;
+	private int[] left;
+	private int[] right;
+	
+	// The index of the root node.
+	private int root;
+	
+	// The first node of the free list, and the number of nodes never used yet.
+	private int free;
+	private int used;
+	
+	// The number of nodes in the tree.
+	private int size;
+	
+	/**
+	 * Constructs a new empty tree with room for 16 nodes before it grows.
+	 */
+	public PooledBinarySearchTree() {
+		this(16);
+	}
+	/**
+	 * Constructs a new empty tree.
+	 * @param capacity The number of nodes to allocate room for up front.
+	 */
+	public PooledBinarySearchTree(int capacity) {
+		capacity = Math.max(capacity, 1);
+		keys = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		root = NIL;
+		free = NIL;
+		used = 0;
+		size = 0;
+	}
+	/**
+	 * A method which inserts a new node into the tree.
+	 * @param value The data value for the node we are going to insert
+	 */
+	public void insert(int value) {
+		int n = allocate(value);
+		// If the tree is empty, insert as root node.
+		if (root == NIL) {
+			root = n;
+			return;
+		}
+		// Walk down to the parent of the new node.
+		int parent = root;
+		while (true) {
+			// Smaller values go on the left, equal and larger values on the right.
+			if (value < keys[parent]) {
+				if (left[parent] == NIL) {
+					left[parent] = n;
+					return;
+				}
+				parent = left[parent];
+			}
+			else {
+				if (right[parent] == NIL) {
+					right[parent] = n;
+					return;
+				}
+				parent = right[parent];
+			}
+		}
+	}
+	/**
+	 * A method which fetches a value from the tree, like BinarySearchTree.fetch.
+	 * @param target The data value we are looking for.
+	 * @return The value if it is in the tree, null otherwise. The value is boxed; use contains to avoid that.
+	 */
+	public Integer fetch(int target) {
+		if (contains(target)) {
+			return target;
+		}
+		return null;
+	}
+	/**
+	 * A method which checks whether a value is in the tree.
+	 * @param target The data value we are looking for.
+	 * @return true if the value is in the tree, false otherwise.
+	 */
+	public boolean contains(int target) {
+		int node = root;
+		while (node != NIL) {
+			if (keys[node] == target) {
+				return true;
+			}
+			node = target < keys[node] ? left[node] : right[node];
+		}
+		return false;
+	}
+	/**
+	 * A method which deletes a node given by a parameter from the tree.
+	 * @param target The data value of the node we are trying to delete
+	 * @return true if we deleted the node, false otherwise.
+	 */
+	public boolean delete(int target) {
+		int parent = NIL;
+		int child = root;
+		// Find the node and its parent.
+		while (child != NIL && keys[child] != target) {
+			parent = child;
+			child = target < keys[child] ? left[child] : right[child];
+		}
+		// If we couldn't find it.
+		if (child == NIL) {
+			return false;
+		}
+		// Case 3: The node has two children. Overwrite its value with the largest value of its left subtree,
+		// then unlink that node instead, which has no right child.
+		if (left[child] != NIL && right[child] != NIL) {
+			int largestParent = child;
+			int largest = left[child];
+			while (right[largest] != NIL) {
+				largestParent = largest;
+				largest = right[largest];
+			}
+			keys[child] = keys[largest];
+			parent = largestParent;
+			child = largest;
+		}
+		// Case 1 and 2: The node has at most one child, which takes its place.
+		int replacement = left[child] != NIL ? left[child] : right[child];
+		if (parent == NIL) {
+			root = replacement;
+		}
+		else if (left[parent] == child) {
+			left[parent] = replacement;
+		}
+		else {
+			right[parent] = replacement;
+		}
+		release(child);
+		return true;
+	}
+	/**
+	 * A method to update a node. This deletes the old node and inserts a new node.
+	 * @param target The value of the node we wish to update.
+	 * @param newValue The value we wish to replace the old node with.
+	 * @return True if we have both deleted the old node and inserted the new one, false otherwise.
+	 */
+	public boolean update(int target, int newValue) {
+		if (!delete(target)) {
+			return false;
+		}
+		insert(newValue);
+		return true;
+	}
+	/**
+	 * Takes a node from the free list, or the next unused node, growing the arrays by half if every node is in use.
+	 * @param value The value of the new node.
+	 * @return The index of the new node.
+	 */
+	private int allocate(int value) {
+		int n;
+		if (free != NIL) {
+			n = free;
+			free = left[n];
+		}
+		else {
+			if (used == keys.length) {
+				int capacity = keys.length + (keys.length >> 1) + 1;
+				keys = Arrays.copyOf(keys, capacity);
+				left = Arrays.copyOf(left, capacity);
+				right = Arrays.copyOf(right, capacity);
+			}
+			n = used++;
+		}
+		keys[n] = value;
+		left[n] = NIL;
+		right[n] = NIL;
+		size++;
+		return n;
+	}
+	/**
+	 * Puts a node onto the free list.
+	 * @param n The index of the node.
+	 */
+	private void release(int n) {
+		left[n] = free;
+		free = n;
+		size--;
+	}
+	/**
+	 * The number of nodes in the tree.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The heap used by the three arrays, divided by the number of nodes in the tree.
+	 * @return The bytes per key, 0 if the tree is empty.
+	 */
+	public double bytesPerKey() {
+		if (size == 0) {
+			return 0;
+		}
+		return (3 * (16 + 4.0 * keys.length)) / size;
+	}
+	/**
+	 * Measures the heap used by BinarySearchTree and by PooledBinarySearchTree holding the same random keys. Each tree is
+	 * built on its own, and the heap in use after a garbage collection is compared with the heap in use before, so the
+	 * figures include every node, boxed Integer and array the tree keeps, and nothing it has already let go of.
+	 * The heap must have room for the larger of the two trees.
+	 * @param keyCount The number of keys, for example 10,000,000.
+	 * @return One line per structure with the total and per-key bytes.
+	 */
+	public static String memoryReport(int keyCount) {
+		Random random = new Random(42);
+		int[] values = new int[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			values[i] = random.nextInt();
+		}
+		long before = usedHeap();
+		BinarySearchTree tree = new BinarySearchTree();
+		for (int i = 0; i < keyCount; i++) {
+			tree.insert(values[i]);
+		}
+		long treeBytes = usedHeap() - before;
+		// Keep the tree reachable until it has been measured, then let it go before building the next one.
+		if (tree.size() != keyCount) {
+			throw new IllegalStateException("BinarySearchTree lost keys");
+		}
+		tree = null;
+		before = usedHeap();
+		PooledBinarySearchTree pooled = new PooledBinarySearchTree();
+		for (int i = 0; i < keyCount; i++) {
+			pooled.insert(values[i]);
+		}
+		long pooledBytes = usedHeap() - before;
+		if (pooled.size() != keyCount) {
+			throw new IllegalStateException("PooledBinarySearchTree lost keys");
+		}
+		return "BinarySearchTree:         " + treeBytes + " bytes (" + String.format("%.1f", ((double) treeBytes) / keyCount) + " per key)\n"
+				+ "PooledBinarySearchTree:   " + pooledBytes + " bytes (" + String.format("%.1f", ((double) pooledBytes) / keyCount) + " per key)";
+	}
+	/**
+	 * The heap in use once a few garbage collections have had the chance to free everything unreachable.
+	 * @return The bytes in use.
+	 */
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
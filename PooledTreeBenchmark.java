@@ -0,0 +1,127 @@
+import java.util.Random;
+
+/**
+ * Measures PooledBinarySearchTree against BinarySearchTree at 10M random keys: the operations per second of insert,
+ * fetch of stored keys, and delete of every other key, and then the heap each tree measurably uses per key.
+ * A run at a tenth of the keys is made first to warm up. The heap must hold BinarySearchTree at full size, about
+ * 500 MB for 10M keys.
+ * Run with: java PooledTreeBenchmark [keys]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PooledTreeBenchmark {
+
+	/*
+	 * The operations a measurement needs, so both trees can be driven by the same loop.
+	 */
+	private interface Tree {
+		void insert(int value);
+		Integer fetch(int target);
+		boolean delete(int target);
+	}
+
+	/**
+	 * Outputs the operations per second of each tree, then the memory report.
+	 * @param args = The number of keys.
+	 */
+	public static void main(String[] args) {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		for (int run = 0; run < 2; run++) {
+			int n = run == 0 ? Math.max(keys / 10, 1) : keys;
+			System.out.println((run == 0 ? "warm-up" : "measured") + " keys=" + n + ":");
+			int[] values = values(n);
+			measure("BinarySearchTree", binarySearchTree(), values);
+			measure("PooledBinarySearchTree", pooledBinarySearchTree(), values);
+		}
+		System.out.println(PooledBinarySearchTree.memoryReport(keys));
+	}
+	/**
+	 * Random values, which keep both trees about 2 log2(n) deep.
+	 * @param n = The number of values.
+	 * @return The values.
+	 */
+	private static int[] values(int n) {
+		Random random = new Random(42);
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextInt();
+		}
+		return values;
+	}
+	/**
+	 * An empty BinarySearchTree.
+	 * @return The tree.
+	 */
+	private static Tree binarySearchTree() {
+		final BinarySearchTree tree = new BinarySearchTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+		};
+	}
+	/**
+	 * An empty PooledBinarySearchTree, starting at its default capacity so the time to grow its arrays is included.
+	 * @return The tree.
+	 */
+	private static Tree pooledBinarySearchTree() {
+		final PooledBinarySearchTree tree = new PooledBinarySearchTree();
+		return new Tree() {
+			public void insert(int value) {
+				tree.insert(value);
+			}
+			public Integer fetch(int target) {
+				return tree.fetch(target);
+			}
+			public boolean delete(int target) {
+				return tree.delete(target);
+			}
+		};
+	}
+	/**
+	 * Inserts the values, fetches each of them, deletes every other one, and outputs the operations per second.
+	 * @param name = The name of the tree.
+	 * @param tree = The tree, empty.
+	 * @param values = The values, in the order to insert them.
+	 */
+	private static void measure(String name, Tree tree, int[] values) {
+		int n = values.length;
+		int wrong = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			tree.insert(values[i]);
+		}
+		long insert = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			if (tree.fetch(values[i]) == null) {
+				wrong++;
+			}
+		}
+		long fetch = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < n; i += 2) {
+			if (!tree.delete(values[i])) {
+				wrong++;
+			}
+		}
+		long delete = System.nanoTime() - start;
+		System.out.println("  " + name + ": insert=" + perSecond(insert, n) + " fetch=" + perSecond(fetch, n)
+				+ " delete=" + perSecond(delete, (n + 1) / 2) + " ops/s" + (wrong != 0 ? " WRONG RESULTS: " + wrong : ""));
+	}
+	/**
+	 * Formats the operations per second.
+	 * @param nanos = The nanoseconds taken by all operations.
+	 * @param operations = The number of operations.
+	 * @return The operations per second.
+	 */
+	private static String perSecond(long nanos, int operations) {
+		return String.format("%.0f", operations / (nanos / 1e9));
+	}
+}
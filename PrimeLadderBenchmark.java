@@ -0,0 +1,133 @@
+/**
+ * Measures the construction path of LQHashed for requested lengths of 1M, 100M and 1B. For each length it times the
+ * search for the table size three ways: the trial division LQHashed used to do, FourKPlus3Primes.exact as used by
+ * fourKPlus3, and the ladder rung used when growing. It then times constructing the table itself, when the two arrays of
+ * N locations fit in the heap; a 100M table needs about 1 GB and a 1B table about 11 GB, so raise -Xmx to measure them.
+ * Run with: java PrimeLadderBenchmark [length ...]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PrimeLadderBenchmark {
+	// The number of times each search is repeated, taking the best.
+	private static final int REPEATS = 5;
+	// The bytes a location costs: a compressed reference in data and an int in pseudoKeys.
+	private static final long BYTES_PER_LOCATION = 8;
+
+	/**
+	 * Outputs one line of search times and one line of construction time per requested length.
+	 * @param args = The requested lengths, 1M, 100M and 1B by default.
+	 */
+	public static void main(String[] args) {
+		int[] lengths = { 1000000, 100000000, 1000000000 };
+		if (args.length > 0) {
+			lengths = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				lengths[i] = Integer.parseInt(args[i]);
+			}
+		}
+		// The percentage LQHashed grows a length by at the default loading factor of 0.75.
+		int pct = (int) ((1.0 / 0.75 - 1) * 100.0);
+		// Warm up each search on a small length first.
+		trialDivision(1000, pct);
+		LQHashed.fourKPlus3(1000, pct);
+		LQHashed.growthSize(1000, pct);
+		for (int i = 0; i < lengths.length; i++) {
+			int length = lengths[i];
+			long trial = Long.MAX_VALUE;
+			long exact = Long.MAX_VALUE;
+			long ladder = Long.MAX_VALUE;
+			int trialPrime = 0;
+			int exactPrime = 0;
+			int ladderPrime = 0;
+			for (int r = 0; r < REPEATS; r++) {
+				long start = System.nanoTime();
+				trialPrime = trialDivision(length, pct);
+				trial = Math.min(trial, System.nanoTime() - start);
+				start = System.nanoTime();
+				exactPrime = LQHashed.fourKPlus3(length, pct);
+				exact = Math.min(exact, System.nanoTime() - start);
+				start = System.nanoTime();
+				ladderPrime = LQHashed.growthSize(length, pct);
+				ladder = Math.min(ladder, System.nanoTime() - start);
+			}
+			System.out.println("length=" + length + ": trial division " + trialPrime + " in " + micros(trial)
+					+ ", Miller-Rabin " + exactPrime + " in " + micros(exact)
+					+ ", ladder " + ladderPrime + " in " + micros(ladder)
+					+ (trialPrime != exactPrime ? " EXACT SIZES DIFFER" : ""));
+			construct(length, exactPrime);
+		}
+	}
+	/**
+	 * Times the construction of a LQHashed of a requested length, or outputs why it was skipped.
+	 * @param length = The requested length.
+	 * @param n = The number of locations the table will have.
+	 */
+	private static void construct(int length, int n) {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		long needed = n * BYTES_PER_LOCATION;
+		if (needed > free) {
+			System.out.println("  construction skipped: " + (needed >> 20) + " MB needed, " + (free >> 20) + " MB free");
+			return;
+		}
+		try {
+			long start = System.nanoTime();
+			LQHashed table = new LQHashed(length, false);
+			long nanos = System.nanoTime() - start;
+			System.out.println("  construction of N=" + table.capacity() + " in " + String.format("%.1f", nanos / 1e6) + " ms");
+		}
+		catch (OutOfMemoryError e) {
+			// The heap had the bytes in total but not in the spaces the two arrays have to go.
+			System.out.println("  construction skipped: out of memory allocating " + (needed >> 20) + " MB");
+		}
+	}
+	/**
+	 * The trial division search LQHashed.fourKPlus3 used before FourKPlus3Primes, kept here to compare against.
+	 * @param n = The number of nodes we wish to store.
+	 * @param pct = How much larger than n, in percent, the storage area should be.
+	 * @return The first 4k + 3 prime at least pct percent larger than n.
+	 */
+	private static int trialDivision(int n, int pct) {
+		boolean fkp3 = false;
+		boolean aPrime = false;
+		int prime = (int) (n * (1.0 + (((double) pct) / 100.0)));
+		int highDivisor;
+		int divisor;
+		if (prime % 2 == 0) {
+			prime = prime + 1;
+		}
+		while (!fkp3) {
+			while (!aPrime) {
+				highDivisor = (int) (Math.sqrt(prime) + 0.5);
+				for (divisor = highDivisor; divisor > 1; divisor--) {
+					if (prime % divisor == 0) {
+						break;
+					}
+				}
+				if (divisor != 1) {
+					prime = prime + 2;
+				}
+				else {
+					aPrime = true;
+				}
+			}
+			if ((prime - 3) % 4 == 0) {
+				fkp3 = true;
+			}
+			else {
+				prime = prime + 2;
+				aPrime = false;
+			}
+		}
+		return prime;
+	}
+	/**
+	 * Formats nanoseconds as microseconds.
+	 * @param nanos = The nanoseconds.
+	 * @return The microseconds, with a unit.
+	 */
+	private static String micros(long nanos) {
+		return String.format("%.1f", nanos / 1e3) + " us";
+	}
+}
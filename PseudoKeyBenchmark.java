@@ -0,0 +1,80 @@
+/**
+ * Measures LQHashed lookups at loads of 0.5, 0.75 and 0.9: the average probe length of a hit and of a miss, and the time
+ * of each. Every probed location holding another key used to cost a string comparison. With the pseudo-keys cached
+ * alongside the locations, only a location whose pseudo-key matches is compared, so a hit compares about one string
+ * however long its probe is, and a miss compares almost none. The keys share a long prefix, as listings do, which makes
+ * each comparison that still happens as slow as it gets. The default fold-shift strategy spreads keys like these poorly,
+ * so every load is measured with it and with Murmur3Hash.
+ * Run with: java PseudoKeyBenchmark [locations]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class PseudoKeyBenchmark {
+	// The loads to measure, as fractions of N.
+	private static final double[] LOADS = { 0.5, 0.75, 0.9 };
+	// The prefix every key shares.
+	private static final String PREFIX = "listings/north-america/real-estate/residential/single-family/";
+
+	/**
+	 * Fills a table to each load with each strategy and outputs one report line per table.
+	 * @param args = The approximate number of locations in each table.
+	 */
+	public static void main(String[] args) {
+		int locations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		HashStrategy[] strategies = { new FoldShiftHash(), new Murmur3Hash() };
+		for (int run = 0; run < 2; run++) {
+			System.out.println(run == 0 ? "warm-up:" : "measured:");
+			for (int h = 0; h < strategies.length; h++) {
+				for (int l = 0; l < LOADS.length; l++) {
+					measure(locations, LOADS[l], strategies[h]);
+				}
+			}
+		}
+	}
+	/**
+	 * Fills a table to a load, then measures fetches of every stored key and of as many absent keys.
+	 * @param locations = The approximate number of locations.
+	 * @param load = The fraction of the locations to fill.
+	 * @param hashStrategy = The pre-processing algorithm of the table.
+	 */
+	private static void measure(int locations, double load, HashStrategy hashStrategy) {
+		// A loading factor above every load measured, so the table accepts all the keys without growing.
+		LQHashed table = new LQHashed((int) (locations * 0.95), false, hashStrategy, 0.95);
+		int keys = (int) (table.capacity() * load);
+		String[] stored = new String[keys];
+		String[] absent = new String[keys];
+		for (int i = 0; i < keys; i++) {
+			stored[i] = PREFIX + i;
+			absent[i] = PREFIX + (i + keys);
+			table.insert(stored[i]);
+		}
+		long hitProbes = 0;
+		long missProbes = 0;
+		for (int i = 0; i < keys; i++) {
+			hitProbes += table.probeLength(stored[i]);
+			missProbes += table.probeLength(absent[i]);
+		}
+		int found = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (table.fetch(stored[i]) != null) {
+				found++;
+			}
+		}
+		long hitNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (table.fetch(absent[i]) != null) {
+				found--;
+			}
+		}
+		long missNanos = System.nanoTime() - start;
+		System.out.println("  " + hashStrategy.name() + " load=" + String.format("%.2f", ((double) table.size()) / table.capacity())
+				+ " N=" + table.capacity()
+				+ " avgHitProbes=" + String.format("%.2f", ((double) hitProbes) / keys)
+				+ " avgMissProbes=" + String.format("%.2f", ((double) missProbes) / keys)
+				+ " nsPerHit=" + String.format("%.0f", ((double) hitNanos) / keys)
+				+ " nsPerMiss=" + String.format("%.0f", ((double) missNanos) / keys)
+				+ (found != keys ? " WRONG RESULTS" : ""));
+	}
+}
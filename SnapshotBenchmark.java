@@ -0,0 +1,89 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures the write and read throughput of LQHashed snapshots, and checks that the table read back holds exactly the
+ * keys of the one written. Every eighth key contains characters that need care in UTF-8: two and three byte characters,
+ * a surrogate pair, and a lone high or low surrogate, which Utf8Keys writes as a three byte sequence.
+ * Run with: java SnapshotBenchmark [keys] [file]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class SnapshotBenchmark {
+	// Characters mixed into some keys: Latin-1, a three byte character, a surrogate pair and both lone surrogates.
+	private static final String[] AWKWARD = { "é", "€", "😀", "\ud800", "\udc00" };
+
+	/**
+	 * Writes and reads back a snapshot, outputting the throughput of each and the result of the check.
+	 * @param args = The number of keys, and the snapshot file to use, a temporary file by default.
+	 * @throws IOException if the snapshot cannot be written or read.
+	 */
+	public static void main(String[] args) throws IOException {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		File file = args.length > 1 ? new File(args[1]) : File.createTempFile("snapshot", ".lqh");
+		try {
+			String[] listings = listings(keys);
+			LQHashed table = new LQHashed(keys, true);
+			for (int i = 0; i < keys; i++) {
+				table.insert(listings[i]);
+			}
+			// Delete some keys so the snapshot has deleted nodes to record as well.
+			for (int i = 0; i < keys; i += 10) {
+				table.delete(listings[i]);
+			}
+			for (int run = 0; run < 3; run++) {
+				long start = System.nanoTime();
+				table.writeSnapshot(file);
+				long written = System.nanoTime() - start;
+				start = System.nanoTime();
+				LQHashed restored = LQHashed.readSnapshot(file);
+				long read = System.nanoTime() - start;
+				double megabytes = file.length() / (1024.0 * 1024.0);
+				System.out.println("run " + run + ": " + String.format("%.1f", megabytes) + " MB, write "
+						+ String.format("%.0f", megabytes / (written / 1e9)) + " MB/s, read "
+						+ String.format("%.0f", megabytes / (read / 1e9)) + " MB/s, " + check(listings, table, restored));
+			}
+		}
+		finally {
+			file.delete();
+		}
+	}
+	/**
+	 * Builds distinct keys, every eighth one with an awkward character in the middle.
+	 * @param keys = The number of keys.
+	 * @return The keys.
+	 */
+	private static String[] listings(int keys) {
+		Random random = new Random(42);
+		String[] listings = new String[keys];
+		for (int i = 0; i < keys; i++) {
+			if (i % 8 == 0) {
+				listings[i] = "listing-" + AWKWARD[random.nextInt(AWKWARD.length)] + "-" + i;
+			}
+			else {
+				listings[i] = "listing-" + i;
+			}
+		}
+		return listings;
+	}
+	/**
+	 * Checks that a restored table has the size of the original, and that each key is in both or in neither.
+	 * @param listings = Every key that was inserted.
+	 * @param original = The table the snapshot was written from.
+	 * @param restored = The table read back.
+	 * @return A description of the result.
+	 */
+	private static String check(String[] listings, LQHashed original, LQHashed restored) {
+		int mismatches = 0;
+		for (int i = 0; i < listings.length; i++) {
+			if ((original.fetch(listings[i]) != null) != (restored.fetch(listings[i]) != null)) {
+				mismatches++;
+			}
+		}
+		if (mismatches == 0 && original.size() == restored.size()) {
+			return "round trip ok (" + restored.size() + " keys)";
+		}
+		return "ROUND TRIP FAILED: " + mismatches + " keys differ, size " + original.size() + " vs " + restored.size();
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * An alternative to LQHashed with the same insert/fetch/update/delete contract, laid out like a Swiss table.
+ * Locations are split into groups of 16, and every location has one control byte: empty, deleted, or 7 bits of the
+ * key's hash. A probe reads a group's 16 control bytes as two longs and matches all of them against the hash at once
+ * with SWAR bit tricks, so most probes touch one group and compare strings only on a 7 bit match.
+ * The number of groups is a power of two, so there is no division, and groups are probed triangularly
+ * (g, g + 1, g + 3, g + 6, ...) which visits every group.
+ * 
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class SwissHashed {
+	// The number of locations in a group, and the number of longs holding a group's control bytes.
+	private static final int GROUP = 16;
+	private static final int WORDS = 2;
+	
+	// Control bytes. A full location stores the low 7 bits of its hash, so its top bit is clear.
+	private static final int EMPTY = 0x80;
+	private static final int DELETED = 0xFE;
+	
+	// A 1 in the lowest and highest bit of every byte, for matching eight control bytes at once.
+	private static final long LSBS = 0x0101010101010101L;
+	private static final long MSBS = 0x8080808080808080L;
+	
+	// Max number of nodes plus deleted nodes / Number of locations, before the table is rebuilt.
+	private static final double MAX_LOAD = 0.875;
+	
+	// The number of groups (a power of two) and that number minus one.
+	private int groups;
+	private int groupMask;
+	
+	// Number of nodes currently stored, and deleted nodes left behind.
+	private int size;
+	private int tombstones;
+	
+	// The nodes, GROUP locations per group.
+	private String[] data;
+	
+	// The control bytes, eight per long, WORDS longs per group.
+	private long[] control;
+	
+	// The pre-processing algorithm that converts keys into pseudo-keys.
+	private HashStrategy hashStrategy;
+	
+	/**
+	 * Constructs a SwissHashed that can hold length nodes before it grows, converting keys with fold shifting.
+	 * @param length= The number of nodes to be stored in the data structure.
+	 */
+	public SwissHashed(int length) {
+		this(length, new FoldShiftHash());
+	}
+	/**
+	 * Constructs a SwissHashed that can hold length nodes before it grows.
+	 * @param length= The number of nodes to be stored in the data structure.
+	 * @param hashStrategy= The pre-processing algorithm that converts keys into pseudo-keys. The pseudo-key is mixed
+	 * further, since the group and the control byte are taken from different bits of it.
+	 */
+	public SwissHashed(int length, HashStrategy hashStrategy) {
+		this.hashStrategy = hashStrategy;
+		int wanted = (int) Math.min((long) (length / MAX_LOAD) / GROUP + 1, 1 << 26);
+		int count = 1;
+		while (count < wanted) {
+			count = count << 1;
+		}
+		allocate(count);
+	}
+	/**
+	 * Allocates an empty table with the given number of groups.
+	 * @param count = The number of groups, a power of two.
+	 */
+	private void allocate(int count) {
+		groups = count;
+		groupMask = count - 1;
+		data = new String[groups * GROUP];
+		control = new long[groups * WORDS];
+		// Every control byte starts out empty.
+		for (int i = 0; i < control.length; i++) {
+			control[i] = LSBS * EMPTY;
+		}
+		size = 0;
+		tombstones = 0;
+	}
+	/**
+	 * Inserts newListing into the structure, growing the table first if it is full to its maximum load.
+	 * @param newListing = The new listing to insert into the structure.
+	 * @return True, the structure grows instead of rejecting inserts.
+	 */
+	public boolean insert(String newListing) {
+		if (size + tombstones + 1 > MAX_LOAD * groups * GROUP) {
+			rebuild();
+		}
+		int hash = hash(newListing);
+		int slot = findFree(hash);
+		if (controlAt(slot) == DELETED) {
+			tombstones--;
+		}
+		data[slot] = newListing;
+		setControl(slot, hash & 0x7F);
+		size++;
+		return true;
+	}
+	/**
+	 * Retrieves the node with key-field given by targetKey from the structure.
+	 * @param targetKey = The key-field of the node we wish to retrieve.
+	 * @return The node whose key-field matches the targetKey, null if we couldn't find it.
+	 */
+	public String fetch(String targetKey) {
+		int slot = find(targetKey, hash(targetKey));
+		if (slot == -1) {
+			return null;
+		}
+		return data[slot];
+	}
+	/**
+	 * Deletes the target item and inserts a new item to replace it.
+	 * @param targetKey = The listing we wish to update
+	 * @param newListing = The listing to replace the targeted listing with
+	 * @return True if we deleted the old listing and inserted the new one, false otherwise.
+	 */
+	public boolean update(String targetKey, String newListing) {
+		if (delete(targetKey) == false) {
+			return false;
+		}
+		return insert(newListing);
+	}
+	/**
+	 * Deletes the node given by the targetKey from the structure.
+	 * @param targetKey = The key of the node we wish to delete
+	 * @return True if we deleted the node, false otherwise.
+	 */
+	public boolean delete(String targetKey) {
+		int slot = find(targetKey, hash(targetKey));
+		if (slot == -1) {
+			return false;
+		}
+		data[slot] = null;
+		size--;
+		// If the group still has an empty location, no probe has ever gone past this group, so the location can go
+		// straight back to empty. Otherwise a deleted marker keeps later probes going.
+		int g = slot / GROUP;
+		if (matchEmpty(control[g * WORDS]) != 0 || matchEmpty(control[g * WORDS + 1]) != 0) {
+			setControl(slot, EMPTY);
+		}
+		else {
+			setControl(slot, DELETED);
+			tombstones++;
+		}
+		return true;
+	}
+	/**
+	 * Probes group by group for the location of targetKey.
+	 * @param targetKey = The key we are looking for.
+	 * @param hash = The mixed hash of targetKey.
+	 * @return The location of the key, -1 if it is not stored.
+	 */
+	private int find(String targetKey, int hash) {
+		long pattern = LSBS * (hash & 0x7F);
+		int g = (hash >>> 7) & groupMask;
+		long word, match;
+		int slot;
+		for (int step = 1; step <= groups; step++) {
+			for (int w = 0; w < WORDS; w++) {
+				word = control[g * WORDS + w];
+				// Every byte equal to the 7 hash bits becomes a set top bit in match.
+				match = matchByte(word, pattern);
+				while (match != 0) {
+					slot = g * GROUP + w * 8 + (Long.numberOfTrailingZeros(match) >>> 3);
+					if (data[slot] != null && data[slot].equals(targetKey)) {
+						return slot;
+					}
+					// Clear the lowest match and try the next.
+					match &= match - 1;
+				}
+			}
+			// If the group has an empty location, the key would have been stored here.
+			if (matchEmpty(control[g * WORDS]) != 0 || matchEmpty(control[g * WORDS + 1]) != 0) {
+				return -1;
+			}
+			g = (g + step) & groupMask;
+		}
+		return -1;
+	}
+	/**
+	 * Probes group by group for the first empty or deleted location.
+	 * @param hash = The mixed hash of the key we are going to store.
+	 * @return The free location.
+	 */
+	private int findFree(int hash) {
+		int g = (hash >>> 7) & groupMask;
+		long match;
+		for (int step = 1; ; step++) {
+			for (int w = 0; w < WORDS; w++) {
+				match = matchEmptyOrDeleted(control[g * WORDS + w]);
+				if (match != 0) {
+					return g * GROUP + w * 8 + (Long.numberOfTrailingZeros(match) >>> 3);
+				}
+			}
+			g = (g + step) & groupMask;
+		}
+	}
+	/**
+	 * Finds the control bytes equal to a 7 bit hash. May also flag a full byte just above a real match,
+	 * which is harmless since every match is checked with equals.
+	 * @param word = Eight control bytes.
+	 * @param pattern = The 7 bit hash repeated in every byte.
+	 * @return A set top bit in every byte that matches.
+	 */
+	private static long matchByte(long word, long pattern) {
+		long x = word ^ pattern;
+		return (x - LSBS) & ~x & MSBS;
+	}
+	/**
+	 * Finds the empty control bytes, the only ones with the top bit set and bit 1 clear.
+	 * @param word = Eight control bytes.
+	 * @return A set top bit in every empty byte.
+	 */
+	private static long matchEmpty(long word) {
+		return word & (~word << 6) & MSBS;
+	}
+	/**
+	 * Finds the empty and deleted control bytes, the only ones with the top bit set and the lowest bit clear.
+	 * @param word = Eight control bytes.
+	 * @return A set top bit in every empty or deleted byte.
+	 */
+	private static long matchEmptyOrDeleted(long word) {
+		return word & (~word << 7) & MSBS;
+	}
+	/**
+	 * Reads the control byte of a location.
+	 * @param slot = The location.
+	 * @return The control byte.
+	 */
+	private int controlAt(int slot) {
+		return (int) (control[slot >>> 3] >>> ((slot & 7) * 8)) & 0xFF;
+	}
+	/**
+	 * Writes the control byte of a location.
+	 * @param slot = The location.
+	 * @param value = The control byte.
+	 */
+	private void setControl(int slot, int value) {
+		int shift = (slot & 7) * 8;
+		control[slot >>> 3] = (control[slot >>> 3] & ~(0xFFL << shift)) | ((long) value << shift);
+	}
+	/**
+	 * Rebuilds the table, doubling it unless deleted nodes make up enough of the load that dropping them is enough.
+	 */
+	private void rebuild() {
+		String[] oldData = data;
+		int count = groups;
+		if (size + 1 > MAX_LOAD * groups * GROUP / 2) {
+			count = groups << 1;
+		}
+		allocate(count);
+		for (int i = 0; i < oldData.length; i++) {
+			if (oldData[i] != null) {
+				int hash = hash(oldData[i]);
+				int slot = findFree(hash);
+				data[slot] = oldData[i];
+				setControl(slot, hash & 0x7F);
+				size++;
+			}
+		}
+	}
+	/**
+	 * Converts a key into a hash. The group comes from the high bits and the control byte from the low 7 bits,
+	 * so the pseudo-key is mixed to make every bit depend on the whole key.
+	 * @param key = The key to hash.
+	 * @return The mixed hash.
+	 */
+	private int hash(String key) {
+		return LQHashedMap.mix(hashStrategy.hash(key));
+	}
+	/**
+	 * The number of nodes currently stored in the structure.
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * The number of locations in the table.
+	 * @return The number of locations.
+	 */
+	public int capacity() {
+		return groups * GROUP;
+	}
+	/**
+	 * Outputs the nodes in the structure to the console.
+	 */
+	public void output() {
+		for (int i = 0; i < data.length; i++) {
+			if (data[i] != null) {
+				System.out.println(data[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,151 @@
+import java.util.Random;
+
+/**
+ * Measures SwissHashed against LQHashed side by side on the same keys: building the table, fetch hits in random order,
+ * fetch misses, and a delete-heavy churn where every step deletes a stored key and inserts a new one, followed by the
+ * misses again to show what the deleted markers left behind cost. Both tables use Murmur3Hash so the comparison is of
+ * the probing and not of the pre-processing. Each phase is run once to warm up and once measured.
+ * Run with: java SwissHashedBenchmark [keys]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class SwissHashedBenchmark {
+
+	/*
+	 * The operations a phase needs, so both structures can be driven by the same loop.
+	 */
+	private interface Table {
+		String fetch(String key);
+		boolean insert(String key);
+		boolean delete(String key);
+	}
+
+	/**
+	 * Runs every phase on both structures and outputs the nanoseconds per operation of each.
+	 * @param args = The number of keys stored.
+	 */
+	public static void main(String[] args) {
+		int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		String[] stored = new String[keys];
+		String[] absent = new String[keys];
+		String[] added = new String[keys];
+		int[] order = new int[keys];
+		for (int i = 0; i < keys; i++) {
+			stored[i] = "listing-" + i;
+			absent[i] = "absent-" + i;
+			added[i] = "added-" + i;
+			order[i] = i;
+		}
+		// Shuffle the order the keys are fetched and deleted in, so neither table benefits from insertion order.
+		Random random = new Random(42);
+		for (int i = keys - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		for (int run = 0; run < 2; run++) {
+			System.out.println(run == 0 ? "warm-up:" : "measured:");
+			measure("LQHashed", lqHashed(keys), stored, absent, added, order);
+			measure("SwissHashed", swissHashed(keys), stored, absent, added, order);
+		}
+	}
+	/**
+	 * A growable LQHashed sized for the keys.
+	 * @param keys = The number of keys.
+	 * @return The table.
+	 */
+	private static Table lqHashed(int keys) {
+		final LQHashed table = new LQHashed(keys, true, new Murmur3Hash());
+		return new Table() {
+			public String fetch(String key) {
+				return table.fetch(key);
+			}
+			public boolean insert(String key) {
+				return table.insert(key);
+			}
+			public boolean delete(String key) {
+				return table.delete(key);
+			}
+		};
+	}
+	/**
+	 * A SwissHashed sized for the keys.
+	 * @param keys = The number of keys.
+	 * @return The table.
+	 */
+	private static Table swissHashed(int keys) {
+		final SwissHashed table = new SwissHashed(keys, new Murmur3Hash());
+		return new Table() {
+			public String fetch(String key) {
+				return table.fetch(key);
+			}
+			public boolean insert(String key) {
+				return table.insert(key);
+			}
+			public boolean delete(String key) {
+				return table.delete(key);
+			}
+		};
+	}
+	/**
+	 * Runs each phase on one table and outputs a line for it.
+	 * @param name = The name of the structure.
+	 * @param table = The structure, empty.
+	 * @param stored = The keys inserted first.
+	 * @param absent = Keys that are never inserted.
+	 * @param added = The keys inserted by the churn.
+	 * @param order = A shuffled order of the indexes.
+	 */
+	private static void measure(String name, Table table, String[] stored, String[] absent, String[] added, int[] order) {
+		int keys = stored.length;
+		int wrong = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			table.insert(stored[i]);
+		}
+		long insert = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (table.fetch(stored[order[i]]) == null) {
+				wrong++;
+			}
+		}
+		long hit = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (table.fetch(absent[i]) != null) {
+				wrong++;
+			}
+		}
+		long miss = System.nanoTime() - start;
+		// Replace every stored key with a new one, leaving the size the same and a deleted node behind each time.
+		start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (!table.delete(stored[order[i]])) {
+				wrong++;
+			}
+			table.insert(added[i]);
+		}
+		long churn = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < keys; i++) {
+			if (table.fetch(absent[i]) != null) {
+				wrong++;
+			}
+		}
+		long churnedMiss = System.nanoTime() - start;
+		System.out.println("  " + name + ": insert=" + perOp(insert, keys) + " hit=" + perOp(hit, keys)
+				+ " miss=" + perOp(miss, keys) + " delete+insert=" + perOp(churn, keys)
+				+ " missAfterChurn=" + perOp(churnedMiss, keys) + " ns/op" + (wrong != 0 ? " WRONG RESULTS: " + wrong : ""));
+	}
+	/**
+	 * Formats the nanoseconds per operation.
+	 * @param nanos = The nanoseconds taken by all operations.
+	 * @param operations = The number of operations.
+	 * @return The nanoseconds per operation.
+	 */
+	private static String perOp(long nanos, int operations) {
+		return String.format("%.1f", ((double) nanos) / operations);
+	}
+}
@@ -0,0 +1,87 @@
+import java.util.Random;
+
+/**
+ * Measures how the probes of a LQHashed that is not allowed to grow hold up under steady insert and delete churn.
+ * Random keys from a fixed key space are inserted and deleted 60/40, and after every round the report shows the size,
+ * the deleted nodes, how much of the primary storage area is occupied, the purges started, the average probe distance
+ * of the stored nodes, and the average probe length and time of a fetch for a key that was never inserted.
+ * The same churn is run once with the default purge thresholds and once with purging switched off, for comparison.
+ * Run with: java TombstoneChurnBenchmark [length] [keySpace] [operations]
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class TombstoneChurnBenchmark {
+	// The number of rounds the operations are split into, one report line each.
+	private static final int ROUNDS = 10;
+	// The number of absent keys fetched to measure a miss.
+	private static final int MISSES = 2000;
+
+	/**
+	 * Runs the churn with and without purging and outputs a report line per round.
+	 * @param args = The length the tables are built for, the number of different keys, and the number of operations.
+	 */
+	public static void main(String[] args) {
+		int length = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+		int keySpace = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int operations = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+		churn("purging", length, keySpace, operations, true);
+		churn("never purging", length, keySpace, operations, false);
+	}
+	/**
+	 * Runs the churn on a new table and outputs a report line per round.
+	 * @param label = The name of the run.
+	 * @param length = The length the table is built for.
+	 * @param keySpace = The number of different keys.
+	 * @param operations = The number of inserts and deletes.
+	 * @param purge = Whether the table purges its deleted nodes.
+	 */
+	private static void churn(String label, int length, int keySpace, int operations, boolean purge) {
+		LQHashed table = new LQHashed(length);
+		if (!purge) {
+			table.setPurgeRatio(Double.MAX_VALUE);
+			table.setPurgeOccupancy(Double.MAX_VALUE);
+		}
+		String[] keys = new String[keySpace];
+		for (int i = 0; i < keySpace; i++) {
+			keys[i] = "listing-" + i;
+		}
+		String[] absent = new String[MISSES];
+		for (int i = 0; i < MISSES; i++) {
+			absent[i] = "absent-" + i;
+		}
+		// Which keys are stored, so inserts only add new keys and deletes only remove stored ones.
+		boolean[] stored = new boolean[keySpace];
+		Random random = new Random(42);
+		System.out.println(label + ": length=" + length + " N=" + table.capacity() + " keySpace=" + keySpace);
+		for (int round = 1; round <= ROUNDS; round++) {
+			for (int op = 0; op < operations / ROUNDS; op++) {
+				int k = random.nextInt(keySpace);
+				if (random.nextInt(10) < 6) {
+					if (!stored[k] && table.insert(keys[k])) {
+						stored[k] = true;
+					}
+				}
+				else if (stored[k] && table.delete(keys[k])) {
+					stored[k] = false;
+				}
+			}
+			long probes = 0;
+			for (int i = 0; i < MISSES; i++) {
+				probes += table.probeLength(absent[i]);
+			}
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < MISSES; i++) {
+				if (table.fetch(absent[i]) != null) {
+					found++;
+				}
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.println("  round " + round + ": size=" + table.size() + " tombstones=" + table.getTombstones()
+					+ " occupancy=" + String.format("%.3f", table.getOccupancy()) + " purges=" + table.getPurgeCount()
+					+ " avgProbeDistance=" + String.format("%.3f", table.getAverageProbeDistance())
+					+ " avgMissProbes=" + String.format("%.1f", ((double) probes) / MISSES)
+					+ " nsPerMiss=" + String.format("%.0f", ((double) nanos) / MISSES) + (found > 0 ? " FOUND ABSENT KEY" : ""));
+		}
+	}
+}
@@ -10,6 +10,8 @@ public class TreeNode {
 	public TreeNode left;
 	// The right child of the tree node.
 	public TreeNode right;
+	// The number of nodes in the subtree rooted at this node, including this node.
+	public int size;
 	/**
 	 * A constructor which initializes a new tree nodes fields to null.
 	 */
@@ -17,5 +19,6 @@ public class TreeNode {
 		data = null;
 		left = null;
 		right = null;
+		size = 1;
 	}
 }
@@ -6,10 +6,6 @@
 public class TreeNodeWrapper {
 	// The reference to the tree node we are wrapping
 	TreeNode treeNodeRef = null;
-	// The reference to the left child.
-	TreeNode left = null;
-	// The reference to the right child.
-	TreeNode right = null;
 	
 	/**
 	 * A method which gets the wrappers 'wrapped' node reference.
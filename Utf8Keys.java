@@ -0,0 +1,174 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for storing keys as UTF-8 bytes and comparing a String against stored bytes without decoding them into a new String.
+ * Used by the LQHashed variants that keep their keys outside of String objects.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+final class Utf8Keys {
+	
+	private Utf8Keys() {
+	}
+	/**
+	 * The number of bytes a key takes up once encoded as UTF-8.
+	 * @param key = The key to measure.
+	 * @return The encoded length in bytes.
+	 */
+	static int encodedLength(String key) {
+		int bytes = 0;
+		int length = key.length();
+		char c;
+		for (int i = 0; i < length; i++) {
+			c = key.charAt(i);
+			if (c < 0x80) {
+				bytes += 1;
+			}
+			else if (c < 0x800) {
+				bytes += 2;
+			}
+			// A surrogate pair is one four byte code point.
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			}
+			else {
+				bytes += 3;
+			}
+		}
+		return bytes;
+	}
+	/**
+	 * Writes a key as UTF-8 into a buffer at the given position.
+	 * @param key = The key to write.
+	 * @param buffer = The buffer to write into.
+	 * @param position = The index of the first byte to write.
+	 * @return The number of bytes written.
+	 */
+	static int write(String key, ByteBuffer buffer, int position) {
+		int start = position;
+		int length = key.length();
+		int c;
+		for (int i = 0; i < length; i++) {
+			c = key.charAt(i);
+			if (c < 0x80) {
+				buffer.put(position++, (byte) c);
+			}
+			else if (c < 0x800) {
+				buffer.put(position++, (byte) (0xC0 | (c >> 6)));
+				buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+			}
+			else if (Character.isHighSurrogate((char) c) && i + 1 < length && Character.isLowSurrogate(key.charAt(i + 1))) {
+				c = Character.toCodePoint((char) c, key.charAt(++i));
+				buffer.put(position++, (byte) (0xF0 | (c >> 18)));
+				buffer.put(position++, (byte) (0x80 | ((c >> 12) & 0x3F)));
+				buffer.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+			}
+			else {
+				buffer.put(position++, (byte) (0xE0 | (c >> 12)));
+				buffer.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+				buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		return position - start;
+	}
+	/**
+	 * Reads a key written by write back into a String. This is the exact reverse of write, so a lone surrogate, which
+	 * write stores as a three byte sequence, comes back as the same char instead of the replacement character a standard
+	 * UTF-8 decoder would give.
+	 * @param buffer = The buffer holding the stored key.
+	 * @param position = The index of the first byte of the stored key.
+	 * @param byteLength = The number of bytes in the stored key.
+	 * @return The key.
+	 */
+	static String read(ByteBuffer buffer, int position, int byteLength) {
+		int end = position + byteLength;
+		// A key never has more chars than bytes.
+		char[] chars = new char[byteLength];
+		int i = 0;
+		int b, c;
+		while (position < end) {
+			b = buffer.get(position) & 0xFF;
+			// One byte character.
+			if (b < 0x80) {
+				chars[i++] = (char) b;
+				position += 1;
+			}
+			// Two byte character.
+			else if (b < 0xE0) {
+				chars[i++] = (char) (((b & 0x1F) << 6) | (buffer.get(position + 1) & 0x3F));
+				position += 2;
+			}
+			// Three byte character, which may be a lone surrogate.
+			else if (b < 0xF0) {
+				chars[i++] = (char) (((b & 0x0F) << 12) | ((buffer.get(position + 1) & 0x3F) << 6) | (buffer.get(position + 2) & 0x3F));
+				position += 3;
+			}
+			// Four byte character, which is a surrogate pair in the String.
+			else {
+				c = ((b & 0x07) << 18) | ((buffer.get(position + 1) & 0x3F) << 12)
+						| ((buffer.get(position + 2) & 0x3F) << 6) | (buffer.get(position + 3) & 0x3F);
+				chars[i++] = Character.highSurrogate(c);
+				chars[i++] = Character.lowSurrogate(c);
+				position += 4;
+			}
+		}
+		return new String(chars, 0, i);
+	}
+	/**
+	 * Compares the UTF-8 bytes of a stored key with a String, decoding one character at a time.
+	 * @param buffer = The buffer holding the stored key.
+	 * @param position = The index of the first byte of the stored key.
+	 * @param byteLength = The number of bytes in the stored key.
+	 * @param key = The key to compare against.
+	 * @return True if the stored key and key are the same string, false otherwise.
+	 */
+	static boolean equals(ByteBuffer buffer, int position, int byteLength, String key) {
+		int end = position + byteLength;
+		int length = key.length();
+		int i = 0;
+		int b, c;
+		while (position < end) {
+			if (i >= length) {
+				return false;
+			}
+			b = buffer.get(position) & 0xFF;
+			// One byte character.
+			if (b < 0x80) {
+				if (key.charAt(i++) != b) {
+					return false;
+				}
+				position += 1;
+			}
+			// Two byte character.
+			else if (b < 0xE0) {
+				c = ((b & 0x1F) << 6) | (buffer.get(position + 1) & 0x3F);
+				if (key.charAt(i++) != c) {
+					return false;
+				}
+				position += 2;
+			}
+			// Three byte character.
+			else if (b < 0xF0) {
+				c = ((b & 0x0F) << 12) | ((buffer.get(position + 1) & 0x3F) << 6) | (buffer.get(position + 2) & 0x3F);
+				if (key.charAt(i++) != c) {
+					return false;
+				}
+				position += 3;
+			}
+			// Four byte character, which is a surrogate pair in the String.
+			else {
+				c = ((b & 0x07) << 18) | ((buffer.get(position + 1) & 0x3F) << 12)
+						| ((buffer.get(position + 2) & 0x3F) << 6) | (buffer.get(position + 3) & 0x3F);
+				if (i + 1 >= length || key.charAt(i) != Character.highSurrogate(c) || key.charAt(i + 1) != Character.lowSurrogate(c)) {
+					return false;
+				}
+				i += 2;
+				position += 4;
+			}
+		}
+		// Equal only if every character of key was matched.
+		return i == length;
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * A pre-processing algorithm based on 32 bit xxHash. Long keys are consumed by four independent accumulators,
+ * eight characters at a time, which keeps the hash fast on long listings. Short keys and the tail are mixed one block at a time.
+ * @author Sean Kurtz
+ * @version 1.0
+ */
+public class XXHash implements HashStrategy {
+	// Prime constants from xxHash32.
+	private static final int P1 = 0x9E3779B1;
+	private static final int P2 = 0x85EBCA77;
+	private static final int P3 = 0xC2B2AE3D;
+	private static final int P4 = 0x27D4EB2F;
+	private static final int P5 = 0x165667B1;
+	
+	// The starting value of the hash.
+	private int seed;
+	
+	/**
+	 * Constructs an xxHash strategy with a seed of 0.
+	 */
+	public XXHash() {
+		this(0);
+	}
+	/**
+	 * Constructs an xxHash strategy with the given seed.
+	 * @param seed = The starting value of the hash.
+	 */
+	public XXHash(int seed) {
+		this.seed = seed;
+	}
+	/**
+	 * Converts a key into a pseudo-key. Every two characters make up one 32 bit block.
+	 * @param key = the key we wish to convert into a pseudo-key.
+	 * @return A non-negative integer pseudo-key.
+	 */
+	public int hash(String key) {
+		int length = key.length();
+		int i = 0;
+		int h;
+		// If there are at least four blocks, run the four accumulators over each stripe of eight characters.
+		if (length >= 8) {
+			int v1 = seed + P1 + P2;
+			int v2 = seed + P2;
+			int v3 = seed;
+			int v4 = seed - P1;
+			while (i + 8 <= length) {
+				v1 = round(v1, block(key, i));
+				v2 = round(v2, block(key, i + 2));
+				v3 = round(v3, block(key, i + 4));
+				v4 = round(v4, block(key, i + 6));
+				i += 8;
+			}
+			h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+		}
+		else {
+			h = seed + P5;
+		}
+		// The length is counted in bytes like the original algorithm.
+		h += length * 2;
+		// Mix the remaining whole blocks.
+		while (i + 2 <= length) {
+			h += block(key, i) * P3;
+			h = Integer.rotateLeft(h, 17) * P4;
+			i += 2;
+		}
+		// Mix the last character if there is one left over.
+		if (i < length) {
+			h += key.charAt(i) * P5;
+			h = Integer.rotateLeft(h, 11) * P1;
+		}
+		// Avalanche so every input bit affects every output bit.
+		h ^= h >>> 15;
+		h *= P2;
+		h ^= h >>> 13;
+		h *= P3;
+		h ^= h >>> 16;
+		// Drop the sign bit so the pseudo-key is non-negative.
+		return h & Integer.MAX_VALUE;
+	}
+	/**
+	 * Reads the two characters starting at index i as one 32 bit block.
+	 * @param key = The key being hashed.
+	 * @param i = The index of the first character.
+	 * @return The block.
+	 */
+	private static int block(String key, int i) {
+		return key.charAt(i) | (key.charAt(i + 1) << 16);
+	}
+	/**
+	 * Mixes a block into one of the accumulators.
+	 * @param acc = The accumulator.
+	 * @param input = The block.
+	 * @return The new value of the accumulator.
+	 */
+	private static int round(int acc, int input) {
+		acc += input * P2;
+		acc = Integer.rotateLeft(acc, 13);
+		acc *= P1;
+		return acc;
+	}
+	/**
+	 * The name of the algorithm.
+	 * @return "xxhash"
+	 */
+	public String name() {
+		return "xxhash";
+	}
+	/**
+	 * The starting value of the hash.
+	 * @return The seed.
+	 */
+	public int seed() {
+		return seed;
+	}
+}